@@ -16,6 +16,10 @@ public class SecurityUtils {
                 .anyMatch(a -> a.getAuthority().equals(ADMIN_ROLE));
     }
 
+    public static String getLoggedInUsername(Authentication auth) {
+        return ((UserDetails) auth.getPrincipal()).getUsername();
+    }
+
     public static boolean hasAccessToTodo(Authentication auth, Todo todo) {
         return hasAccess(auth, todo.getUser().getLogin());
     }
@@ -25,7 +29,6 @@ public class SecurityUtils {
     }
 
     private static boolean hasAccess(Authentication auth, String username) {
-        return isAdminLoggedIn(auth) ||
-                ((UserDetails) auth.getPrincipal()).getUsername().equals(username);
+        return isAdminLoggedIn(auth) || getLoggedInUsername(auth).equals(username);
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.czyzewskialan.todo.security.config;
+
+import com.czyzewskialan.todo.security.crypto.AlgorithmDelegatingPasswordEncoder;
+import com.czyzewskialan.todo.security.crypto.BoundedPasswordEncoder;
+import com.czyzewskialan.todo.security.crypto.PasswordHashingAlgorithm;
+import com.czyzewskialan.todo.security.crypto.PasswordHashingCalibrator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+@Configuration
+public class PasswordEncoderConfig {
+
+    @Bean
+    PasswordEncoder passwordEncoder(@Value("${security.password-hashing.algorithm:BCRYPT}") PasswordHashingAlgorithm algorithm,
+                                    @Value("${security.password-hashing.cost:#{null}}") Integer cost,
+                                    @Value("${security.password-hashing.target-latency:250ms}") Duration targetLatency,
+                                    @Value("${security.password-hashing.threads:0}") int threads,
+                                    @Value("${security.password-hashing.queue-capacity:100}") int queueCapacity,
+                                    MeterRegistry meterRegistry) {
+        int hashingCost = cost != null ? cost : PasswordHashingCalibrator.calibrate(algorithm, targetLatency);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new AlgorithmDelegatingPasswordEncoder(algorithm, hashingCost),
+                poolSize, queueCapacity, meterRegistry);
+    }
+}
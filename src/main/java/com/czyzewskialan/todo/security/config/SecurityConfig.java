@@ -1,45 +1,78 @@
 package com.czyzewskialan.todo.security.config;
 
+import com.czyzewskialan.todo.security.filter.AccessTokenAuthenticationFilter;
+import com.czyzewskialan.todo.security.filter.LoginThrottledEntryPoint;
+import com.czyzewskialan.todo.security.filter.PasswordHashingRejectedFilter;
+import com.czyzewskialan.todo.security.service.AccessTokenService;
+import com.czyzewskialan.todo.security.service.CachingAuthenticationProvider;
+import com.czyzewskialan.todo.security.service.CredentialsCache;
+import com.czyzewskialan.todo.security.service.LoginAttemptThrottle;
+import com.czyzewskialan.todo.security.service.ThrottlingAuthenticationProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @EnableWebSecurity
 @Configuration
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
+    private static final String REALM_NAME = "Realm";
 
     private UserDetailsService userDetailsService;
+    private UserDetailsPasswordService userDetailsPasswordService;
     private PasswordEncoder passwordEncoder;
+    private CredentialsCache credentialsCache;
+    private AccessTokenService accessTokenService;
+    private LoginAttemptThrottle loginAttemptThrottle;
 
     @Autowired
     public void setUserDetailsService(UserDetailsService userDetailsService) {
         this.userDetailsService = userDetailsService;
     }
 
+    @Autowired
+    public void setUserDetailsPasswordService(UserDetailsPasswordService userDetailsPasswordService) {
+        this.userDetailsPasswordService = userDetailsPasswordService;
+    }
+
     @Autowired
     public void setPasswordEncoder(PasswordEncoder passwordEncoder) {
         this.passwordEncoder = passwordEncoder;
     }
 
-    @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Autowired
+    public void setCredentialsCache(CredentialsCache credentialsCache) {
+        this.credentialsCache = credentialsCache;
+    }
+
+    @Autowired
+    public void setAccessTokenService(AccessTokenService accessTokenService) {
+        this.accessTokenService = accessTokenService;
+    }
+
+    @Autowired
+    public void setLoginAttemptThrottle(LoginAttemptThrottle loginAttemptThrottle) {
+        this.loginAttemptThrottle = loginAttemptThrottle;
     }
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder);
+        CachingAuthenticationProvider authenticationProvider = new CachingAuthenticationProvider(credentialsCache);
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        authenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService);
+        auth.authenticationProvider(new ThrottlingAuthenticationProvider(loginAttemptThrottle, authenticationProvider));
     }
 
 //    @Bean
@@ -72,7 +105,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     protected void configure(HttpSecurity http) throws Exception {
         http.csrf().disable();
         http.headers().frameOptions().disable();
-        http.httpBasic();
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName(REALM_NAME);
+        http.httpBasic().authenticationEntryPoint(new LoginThrottledEntryPoint(basicEntryPoint));
+        http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+        http.addFilterBefore(new PasswordHashingRejectedFilter(), BasicAuthenticationFilter.class);
+        http.addFilterBefore(new AccessTokenAuthenticationFilter(accessTokenService), BasicAuthenticationFilter.class);
         http.authorizeRequests()
                 .antMatchers("/info", "/health").permitAll()
                 .anyRequest().fullyAuthenticated();
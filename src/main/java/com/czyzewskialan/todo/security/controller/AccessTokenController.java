@@ -0,0 +1,23 @@
+package com.czyzewskialan.todo.security.controller;
+
+import com.czyzewskialan.todo.security.controller.dto.AccessTokenDto;
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.security.service.AccessTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.czyzewskialan.todo.security.filter.AccessTokenAuthenticationFilter.TOKEN_URL;
+
+@RestController
+@RequiredArgsConstructor
+public class AccessTokenController {
+
+    private final AccessTokenService accessTokenService;
+
+    @PostMapping(TOKEN_URL)
+    public AccessTokenDto createToken(Authentication auth) {
+        return accessTokenService.issue((CurrentUser) auth.getPrincipal());
+    }
+}
@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.security.controller.dto;
+
+public record AccessTokenDto(String accessToken, String tokenType, long expiresIn) {
+}
@@ -0,0 +1,70 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes with the configured algorithm and cost, prefixing the hash with both, e.g. {@code {bcrypt:12}$2a$12$...}.
+ * Any earlier algorithm or cost is still verified, and reported by {@link #upgradeEncoding(String)} so that it is
+ * re-hashed on the next successful login. Hashes without a prefix are treated as plain BCrypt.
+ */
+public class AlgorithmDelegatingPasswordEncoder implements PasswordEncoder {
+    private static final String PREFIX = "{";
+    private static final String SUFFIX = "}";
+    private static final String COST_SEPARATOR = ":";
+    private static final PasswordEncoder LEGACY_ENCODER = PasswordHashingAlgorithm.BCRYPT.encoder(10);
+
+    private final PasswordHashingAlgorithm algorithm;
+    private final int cost;
+    private final Map<String, PasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+    public AlgorithmDelegatingPasswordEncoder(PasswordHashingAlgorithm algorithm, int cost) {
+        this.algorithm = algorithm;
+        this.cost = cost;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        String id = algorithm.getId() + COST_SEPARATOR + cost;
+        return PREFIX + id + SUFFIX + encoder(id).encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        String id = extractId(encodedPassword);
+        if (id == null) {
+            return LEGACY_ENCODER.matches(rawPassword, encodedPassword);
+        }
+        return encoder(id).matches(rawPassword, encodedPassword.substring(id.length() + 2));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        String id = extractId(encodedPassword);
+        if (id == null) {
+            return true;
+        }
+        String[] parts = id.split(COST_SEPARATOR);
+        return PasswordHashingAlgorithm.fromId(parts[0]) != algorithm || Integer.parseInt(parts[1]) < cost;
+    }
+
+    private PasswordEncoder encoder(String id) {
+        return encoders.computeIfAbsent(id, key -> {
+            String[] parts = key.split(COST_SEPARATOR);
+            return PasswordHashingAlgorithm.fromId(parts[0]).encoder(Integer.parseInt(parts[1]));
+        });
+    }
+
+    private static String extractId(String encodedPassword) {
+        if (encodedPassword == null || !encodedPassword.startsWith(PREFIX)) {
+            return null;
+        }
+        int end = encodedPassword.indexOf(SUFFIX);
+        return end < 0 ? null : encodedPassword.substring(PREFIX.length(), end);
+    }
+}
@@ -0,0 +1,86 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import lombok.Getter;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+@Getter
+public enum PasswordHashingAlgorithm {
+    BCRYPT("bcrypt", 4, 31) {
+        @Override
+        public PasswordEncoder encoder(int cost) {
+            return new BCryptPasswordEncoder(cost);
+        }
+
+        @Override
+        public int nextCost(int cost) {
+            return cost + 1;
+        }
+    },
+    PBKDF2("pbkdf2", 10_000, 100_000_000) {
+        @Override
+        public PasswordEncoder encoder(int cost) {
+            Pbkdf2PasswordEncoder encoder = new Pbkdf2PasswordEncoder("", SALT_LENGTH, cost, HASH_LENGTH * Byte.SIZE);
+            encoder.setAlgorithm(Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+            return encoder;
+        }
+
+        @Override
+        public int nextCost(int cost) {
+            return cost * 2;
+        }
+    },
+    SCRYPT("scrypt", 1 << 10, 1 << 22) {
+        @Override
+        public PasswordEncoder encoder(int cost) {
+            return new SCryptPasswordEncoder(cost, SCRYPT_BLOCK_SIZE, 1, HASH_LENGTH, SALT_LENGTH);
+        }
+
+        @Override
+        public int nextCost(int cost) {
+            return cost * 2;
+        }
+    },
+    ARGON2("argon2", 1, 100) {
+        @Override
+        public PasswordEncoder encoder(int cost) {
+            return new Argon2PasswordEncoder(SALT_LENGTH, HASH_LENGTH, 1, ARGON2_MEMORY_KB, cost);
+        }
+
+        @Override
+        public int nextCost(int cost) {
+            return cost + 1;
+        }
+    };
+
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int SCRYPT_BLOCK_SIZE = 8;
+    private static final int ARGON2_MEMORY_KB = 1 << 12;
+
+    private final String id;
+    private final int minCost;
+    private final int maxCost;
+
+    PasswordHashingAlgorithm(String id, int minCost, int maxCost) {
+        this.id = id;
+        this.minCost = minCost;
+        this.maxCost = maxCost;
+    }
+
+    public abstract PasswordEncoder encoder(int cost);
+
+    public abstract int nextCost(int cost);
+
+    public static PasswordHashingAlgorithm fromId(String id) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.id.equals(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown password hashing algorithm: " + id));
+    }
+}
@@ -0,0 +1,45 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+@Slf4j
+public class PasswordHashingCalibrator {
+    private static final String SAMPLE_PASSWORD = "calibration-Password-1";
+    private static final int SAMPLES = 3;
+
+    private PasswordHashingCalibrator() {
+        throw new IllegalStateException("Cannot create an object of utility class");
+    }
+
+    /**
+     * Returns the highest cost whose encoding still takes no longer than {@code targetLatency} on this machine,
+     * but never less than the minimal cost of the algorithm.
+     */
+    public static int calibrate(PasswordHashingAlgorithm algorithm, Duration targetLatency) {
+        int chosenCost = algorithm.getMinCost();
+        for (int cost = algorithm.getMinCost(); cost <= algorithm.getMaxCost(); cost = algorithm.nextCost(cost)) {
+            Duration latency = measure(algorithm.encoder(cost));
+            log.info("Password hashing {} with cost {} takes {} ms.", algorithm.getId(), cost, latency.toMillis());
+            if (latency.compareTo(targetLatency) > 0) {
+                break;
+            }
+            chosenCost = cost;
+        }
+        log.info("Chose cost {} for {} with target latency {} ms.", chosenCost, algorithm.getId(), targetLatency.toMillis());
+        return chosenCost;
+    }
+
+    private static Duration measure(PasswordEncoder encoder) {
+        encoder.encode(SAMPLE_PASSWORD);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return Duration.ofNanos(fastest);
+    }
+}
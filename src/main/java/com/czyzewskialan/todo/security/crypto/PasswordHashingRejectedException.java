@@ -0,0 +1,8 @@
+package com.czyzewskialan.todo.security.crypto;
+
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException() {
+        super("Too many password hashing requests, try again later");
+    }
+}
@@ -0,0 +1,53 @@
+package com.czyzewskialan.todo.security.filter;
+
+import com.czyzewskialan.todo.security.service.AccessTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.czyzewskialan.todo.security.service.AccessTokenService.TOKEN_TYPE;
+
+@RequiredArgsConstructor
+public class AccessTokenAuthenticationFilter extends OncePerRequestFilter {
+    public static final String TOKEN_URL = "/token";
+    private static final String BEARER_PREFIX = TOKEN_TYPE + " ";
+    private static final RequestMatcher TOKEN_REQUEST = new AntPathRequestMatcher(TOKEN_URL);
+
+    private final AccessTokenService accessTokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Optional<Authentication> authentication = accessTokenService.authenticate(header.substring(BEARER_PREFIX.length()).trim());
+        if (authentication.isEmpty()) {
+            SecurityContextHolder.clearContext();
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, TOKEN_TYPE + " error=\"invalid_token\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        SecurityContextHolder.getContext().setAuthentication(authentication.get());
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // a new token can only be obtained with the password, never with another token
+        return TOKEN_REQUEST.matches(request);
+    }
+}
@@ -0,0 +1,36 @@
+package com.czyzewskialan.todo.security.filter;
+
+import com.czyzewskialan.todo.security.service.LoginThrottledException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers throttled logins with 429 and the time until they are admitted again, since asking for credentials with
+ * 401 would only invite retrying them right away. Other failures are left to the delegate.
+ */
+@RequiredArgsConstructor
+public class LoginThrottledEntryPoint implements AuthenticationEntryPoint {
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    private final AuthenticationEntryPoint delegate;
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException, ServletException {
+        if (authException instanceof LoginThrottledException e) {
+            long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+        } else {
+            delegate.commence(request, response, authException);
+        }
+    }
+}
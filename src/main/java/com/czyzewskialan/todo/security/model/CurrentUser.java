@@ -5,6 +5,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 
 @Getter
@@ -16,12 +17,19 @@ public class CurrentUser implements UserDetails {
     @NonNull
     private final String login;
 
-    @NonNull
     private final String passwordHash;
 
     @NonNull
     private final String role;
 
+    /**
+     * When the user was created and last updated, so that the user can be described without loading it. Missing when
+     * the principal was built from a source that does not carry them.
+     */
+    private final LocalDateTime dateCreated;
+
+    private final LocalDateTime dateUpdated;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return AuthorityUtils.createAuthorityList(role);
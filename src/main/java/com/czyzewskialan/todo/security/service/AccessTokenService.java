@@ -0,0 +1,146 @@
+package com.czyzewskialan.todo.security.service;
+
+import com.czyzewskialan.todo.security.controller.dto.AccessTokenDto;
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+@Service
+public class AccessTokenService {
+    public static final String TOKEN_TYPE = "Bearer";
+    private static final int KEY_LENGTH = 32;
+    private static final char FIELD_SEPARATOR = ':';
+    private static final String SIGNATURE_SEPARATOR = ".";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final HashFunction signer;
+    private final Duration ttl;
+    private final Cache<String, Long> revocations;
+    private final AtomicLong revokedForEveryoneBefore = new AtomicLong();
+
+    public AccessTokenService(@Value("${security.token.secret:}") String secret,
+                              @Value("${security.token.ttl:15m}") Duration ttl,
+                              @Value("${security.token.deny-list.maximum-size:100000}") long denyListMaximumSize) {
+        this.signer = Hashing.hmacSha256(isNullOrEmpty(secret) ? randomKey() : secret.getBytes(StandardCharsets.UTF_8));
+        this.ttl = ttl;
+        this.revocations = CacheBuilder.newBuilder()
+                .maximumSize(denyListMaximumSize)
+                .expireAfterWrite(ttl)
+                .removalListener(this::onRevocationRemoved)
+                .build();
+    }
+
+    public AccessTokenDto issue(CurrentUser user) {
+        long issuedAt = System.currentTimeMillis();
+        long expiresAt = issuedAt + ttl.toMillis();
+        String payload = String.join(String.valueOf(FIELD_SEPARATOR),
+                user.getRole(), Long.toString(issuedAt), Long.toString(expiresAt),
+                encodeDate(user.getDateCreated()), encodeDate(user.getDateUpdated()), user.getLogin());
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        String token = encodedPayload + SIGNATURE_SEPARATOR + ENCODER.encodeToString(sign(encodedPayload));
+        return new AccessTokenDto(token, TOKEN_TYPE, ttl.toSeconds());
+    }
+
+    public Optional<Authentication> authenticate(String token) {
+        int separator = token.indexOf(SIGNATURE_SEPARATOR);
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        String encodedPayload = token.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return Optional.empty();
+            }
+            String payload = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8);
+            List<String> fields = Splitter.on(FIELD_SEPARATOR).limit(6).splitToList(payload);
+            String role = fields.get(0);
+            long issuedAt = Long.parseLong(fields.get(1));
+            long expiresAt = Long.parseLong(fields.get(2));
+            String login = fields.get(5);
+            if (expiresAt <= System.currentTimeMillis() || isRevoked(login, issuedAt)) {
+                return Optional.empty();
+            }
+            CurrentUser user = CurrentUser.builder()
+                    .login(login)
+                    .role(role)
+                    .dateCreated(decodeDate(fields.get(3)))
+                    .dateUpdated(decodeDate(fields.get(4)))
+                    .build();
+            return Optional.of(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    public void revoke(String login) {
+        revocations.put(login, System.currentTimeMillis());
+    }
+
+    @EventListener
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        revoke(event.login());
+    }
+
+    private boolean isRevoked(String login, long issuedAt) {
+        if (issuedAt <= revokedForEveryoneBefore.get()) {
+            return true;
+        }
+        Long revokedAt = revocations.getIfPresent(login);
+        return revokedAt != null && issuedAt <= revokedAt;
+    }
+
+    private void onRevocationRemoved(RemovalNotification<String, Long> notification) {
+        // the deny-list is full, so rather than forget a revocation every older token is rejected
+        if (notification.getCause() == RemovalCause.SIZE && notification.getValue() != null) {
+            revokedForEveryoneBefore.accumulateAndGet(notification.getValue(), Math::max);
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return signer.hashString(encodedPayload, StandardCharsets.US_ASCII).asBytes();
+    }
+
+    /**
+     * Writes the date as microseconds, the precision of the database, so that it contains no field separator.
+     */
+    private static String encodeDate(LocalDateTime date) {
+        return date == null ? "" : Long.toString(ChronoUnit.MICROS.between(EPOCH, date));
+    }
+
+    private static LocalDateTime decodeDate(String field) {
+        return field.isEmpty() ? null : EPOCH.plus(Long.parseLong(field), ChronoUnit.MICROS);
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,32 @@
+package com.czyzewskialan.todo.security.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class CachingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final CredentialsCache credentialsCache;
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getCredentials() == null) {
+            return super.authenticate(authentication);
+        }
+        String login = authentication.getName();
+        String password = authentication.getCredentials().toString();
+        Optional<UserDetails> cached = credentialsCache.get(login, password);
+        if (cached.isPresent()) {
+            return createSuccessAuthentication(cached.get(), authentication, cached.get());
+        }
+        long stamp = credentialsCache.stamp();
+        Authentication result = super.authenticate(authentication);
+        credentialsCache.put(login, password, (UserDetails) result.getPrincipal(), stamp);
+        return result;
+    }
+}
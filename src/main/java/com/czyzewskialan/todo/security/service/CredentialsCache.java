@@ -0,0 +1,82 @@
+package com.czyzewskialan.todo.security.service;
+
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class CredentialsCache {
+    private static final int KEY_LENGTH = 32;
+
+    private final Cache<String, CachedCredentials> cache;
+    private final HashFunction hashFunction;
+    private long invalidations;
+
+    public CredentialsCache(@Value("${security.credentials-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${security.credentials-cache.ttl:5m}") Duration ttl) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        this.hashFunction = Hashing.hmacSha256(key);
+    }
+
+    public Optional<UserDetails> get(String login, String password) {
+        CachedCredentials cached = cache.getIfPresent(login);
+        if (cached != null && MessageDigest.isEqual(cached.digest(), digest(login, password))) {
+            return Optional.of(cached.userDetails());
+        }
+        return Optional.empty();
+    }
+
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Stores the credentials unless any login has been invalidated since {@code stamp} was taken,
+     * so that a check which raced with a password change cannot bring the old password back.
+     */
+    public synchronized void put(String login, String password, UserDetails userDetails, long stamp) {
+        if (stamp == invalidations) {
+            cache.put(login, new CachedCredentials(digest(login, password), userDetails));
+        }
+    }
+
+    public synchronized void invalidate(String login) {
+        invalidations++;
+        cache.invalidate(login);
+    }
+
+    @EventListener
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        invalidate(event.login());
+    }
+
+    private byte[] digest(String login, String password) {
+        HashCode hashCode = hashFunction.newHasher()
+                .putString(login, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(password, StandardCharsets.UTF_8)
+                .hash();
+        return hashCode.asBytes();
+    }
+
+    private record CachedCredentials(byte[] digest, UserDetails userDetails) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.czyzewskialan.todo.security.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class LoginAttemptThrottle {
+    static final String METRIC_NAME = "security.login.attempts";
+
+    private final WindowedCountSketch loginFailures;
+    private final WindowedCountSketch clientFailures;
+    private final int maxFailuresPerLogin;
+    private final int maxFailuresPerClient;
+    private final long windowMillis;
+    private final Counter admitted;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public LoginAttemptThrottle(@Value("${security.login-throttle.max-failures-per-login:10}") int maxFailuresPerLogin,
+                                @Value("${security.login-throttle.max-failures-per-client:50}") int maxFailuresPerClient,
+                                @Value("${security.login-throttle.window:1m}") Duration window,
+                                @Value("${security.login-throttle.sketch-width:65536}") int sketchWidth,
+                                MeterRegistry meterRegistry) {
+        this.loginFailures = new WindowedCountSketch(sketchWidth, window.toMillis());
+        this.clientFailures = new WindowedCountSketch(sketchWidth, window.toMillis());
+        this.maxFailuresPerLogin = maxFailuresPerLogin;
+        this.maxFailuresPerClient = maxFailuresPerClient;
+        this.windowMillis = window.toMillis();
+        this.admitted = Counter.builder(METRIC_NAME).tag("result", "admitted").register(meterRegistry);
+        this.rejected = Counter.builder(METRIC_NAME).tag("result", "rejected").register(meterRegistry);
+        this.failed = Counter.builder(METRIC_NAME).tag("result", "failed").register(meterRegistry);
+    }
+
+    public boolean tryAdmit(String login, String clientAddress) {
+        long now = System.currentTimeMillis();
+        boolean blocked = loginFailures.estimate(login, now) >= maxFailuresPerLogin
+                || (clientAddress != null && clientFailures.estimate(clientAddress, now) >= maxFailuresPerClient);
+        (blocked ? rejected : admitted).increment();
+        return !blocked;
+    }
+
+    /**
+     * Returns the time until failures are counted anew, after which a throttled login is admitted again.
+     */
+    public Duration getRetryAfter() {
+        return Duration.ofMillis(windowMillis - System.currentTimeMillis() % windowMillis);
+    }
+
+    public void recordFailure(String login, String clientAddress) {
+        long now = System.currentTimeMillis();
+        loginFailures.increment(login, now);
+        if (clientAddress != null) {
+            clientFailures.increment(clientAddress, now);
+        }
+        failed.increment();
+    }
+}
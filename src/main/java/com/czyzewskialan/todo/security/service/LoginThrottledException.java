@@ -0,0 +1,17 @@
+package com.czyzewskialan.todo.security.service;
+
+import lombok.Getter;
+import org.springframework.security.core.AuthenticationException;
+
+import java.time.Duration;
+
+@Getter
+public class LoginThrottledException extends AuthenticationException {
+
+    private final Duration retryAfter;
+
+    public LoginThrottledException(String login, Duration retryAfter) {
+        super(String.format("Too many failed login attempts for \"%s\", try again later", login));
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,42 @@
+package com.czyzewskialan.todo.security.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+@RequiredArgsConstructor
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider {
+
+    private final LoginAttemptThrottle loginAttemptThrottle;
+    private final AuthenticationProvider delegate;
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String login = authentication.getName();
+        String clientAddress = clientAddress(authentication);
+        if (!loginAttemptThrottle.tryAdmit(login, clientAddress)) {
+            throw new LoginThrottledException(login, loginAttemptThrottle.getRetryAfter());
+        }
+        try {
+            return delegate.authenticate(authentication);
+        } catch (BadCredentialsException e) {
+            loginAttemptThrottle.recordFailure(login, clientAddress);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private static String clientAddress(Authentication authentication) {
+        if (authentication.getDetails() instanceof WebAuthenticationDetails details) {
+            return details.getRemoteAddress();
+        }
+        return null;
+    }
+}
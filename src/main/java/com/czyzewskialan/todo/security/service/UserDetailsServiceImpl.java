@@ -1,29 +1,65 @@
 package com.czyzewskialan.todo.security.service;
 
 import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.user.domain.User;
 import com.czyzewskialan.todo.user.persistance.UserRepository;
+import com.czyzewskialan.todo.user.service.LoginFilter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+@Slf4j
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
-    private static final String ROLE_PREFIX = "ROLE_";
+    public static final String ROLE_PREFIX = "ROLE_";
 
     private final UserRepository userRepository;
+    private final LoginFilter loginFilter;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!loginFilter.mightExist(username)) {
+            throw new UsernameNotFoundException(username);
+        }
         return userRepository.findById(username)
                 .map(user -> CurrentUser.builder()
                         .login(user.getLogin())
                         .passwordHash(user.getPasswordHash())
                         .role(ROLE_PREFIX + user.getRole().name())
+                        .dateCreated(user.getDateCreated())
+                        .dateUpdated(user.getDateUpdated())
                         .build())
-                .orElseThrow(() -> new UsernameNotFoundException(username));
+                .orElseThrow(() -> {
+                    loginFilter.recordFalsePositive();
+                    return new UsernameNotFoundException(username);
+                });
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPasswordHash) {
+        CurrentUser currentUser = (CurrentUser) userDetails;
+        LocalDateTime dateUpdated = userRepository.findById(userDetails.getUsername())
+                .map(user -> {
+                    user.setPasswordHash(newPasswordHash);
+                    User savedUser = userRepository.save(user);
+                    log.info("Upgraded password hash of user \"{}\".", user.getLogin());
+                    return savedUser.getDateUpdated();
+                })
+                .orElse(currentUser.getDateUpdated());
+        return CurrentUser.builder()
+                .login(userDetails.getUsername())
+                .passwordHash(newPasswordHash)
+                .role(currentUser.getRole())
+                .dateCreated(currentUser.getDateCreated())
+                .dateUpdated(dateUpdated)
+                .build();
     }
 }
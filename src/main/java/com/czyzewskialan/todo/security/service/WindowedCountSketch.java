@@ -0,0 +1,77 @@
+package com.czyzewskialan.todo.security.service;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate per-key event counts within fixed time windows, in constant memory whatever the number of keys.
+ * Each key is counted in two hashed slots and the smaller count is reported (a count-min sketch of depth two),
+ * so collisions can only overestimate. A slot packs its window number and count into a single long,
+ * which keeps every update a lock-free compare-and-set.
+ */
+class WindowedCountSketch {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int ROWS = 2;
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long windowMillis;
+
+    WindowedCountSketch(int width, long windowMillis) {
+        int rowWidth = Integer.highestOneBit(Math.max(width, 2));
+        this.slots = new AtomicLongArray(ROWS * rowWidth);
+        this.mask = rowWidth - 1;
+        this.windowMillis = windowMillis;
+    }
+
+    void increment(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long hash = hash(key);
+        for (int row = 0; row < ROWS; row++) {
+            int index = index(hash, row);
+            long current;
+            long updated;
+            do {
+                current = slots.get(index);
+                long count = windowOf(current) == window ? countOf(current) : 0;
+                updated = pack(window, Math.min(count + 1, COUNT_MASK));
+            } while (!slots.compareAndSet(index, current, updated));
+        }
+    }
+
+    long estimate(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            long slot = slots.get(index(hash, row));
+            estimate = Math.min(estimate, windowOf(slot) == window ? countOf(slot) : 0);
+        }
+        return estimate;
+    }
+
+    private int index(long hash, int row) {
+        int rowHash = (int) (row == 0 ? hash : hash >>> Integer.SIZE);
+        return row * (mask + 1) + (rowHash & mask);
+    }
+
+    private static long hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static long pack(long window, long count) {
+        return (window << Integer.SIZE) | count;
+    }
+
+    private static long windowOf(long slot) {
+        return slot >>> Integer.SIZE;
+    }
+
+    private static long countOf(long slot) {
+        return slot & COUNT_MASK;
+    }
+}
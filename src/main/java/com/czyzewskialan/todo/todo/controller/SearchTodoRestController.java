@@ -1,16 +1,23 @@
 package com.czyzewskialan.todo.todo.controller;
 
+import com.czyzewskialan.todo.todo.controller.dto.BulkOperationResultDto;
 import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
 import com.czyzewskialan.todo.todo.controller.dto.TodoSearchParamsDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSliceDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
 import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.service.InvalidCursorException;
+import com.czyzewskialan.todo.todo.service.InvalidTodoRequestException;
 import com.czyzewskialan.todo.todo.service.SearchTodoService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/search/todos")
@@ -20,12 +27,59 @@ public class SearchTodoRestController {
     private final SearchTodoService searchService;
 
     @GetMapping
-    public Page<TodoDto> find(@RequestParam(value = "title", required = false) String title,
-                              @RequestParam(value = "priority", required = false) Todo.Priority priority,
-                              @RequestParam(value = "completed", required = false) Boolean completed,
-                              Pageable pageRequest, Authentication auth) {
+    public ResponseEntity<Slice<TodoDto>> find(@RequestParam(value = "title", required = false) String title,
+                                               @RequestParam(value = "priority", required = false) Todo.Priority priority,
+                                               @RequestParam(value = "completed", required = false) Boolean completed,
+                                               @RequestParam(value = "count", defaultValue = "true") boolean count,
+                                               Pageable pageRequest, WebRequest request, Authentication auth) {
         TodoSearchParamsDto todoSearchParamsDto = new TodoSearchParamsDto(title, priority, completed, pageRequest);
-        return searchService.find(todoSearchParamsDto, auth);
+        String eTag = searchService.getETag(todoSearchParamsDto, count, auth);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(count ? searchService.find(todoSearchParamsDto, auth) : searchService.findSlice(todoSearchParamsDto, auth));
+    }
+
+    @GetMapping("/scroll")
+    public TodoSliceDto scroll(@RequestParam(value = "title", required = false) String title,
+                               @RequestParam(value = "priority", required = false) Todo.Priority priority,
+                               @RequestParam(value = "completed", required = false) Boolean completed,
+                               @RequestParam(value = "cursor", required = false) String cursor,
+                               Pageable pageRequest, Authentication auth) {
+        TodoSearchParamsDto todoSearchParamsDto = new TodoSearchParamsDto(title, priority, completed, pageRequest);
+        return searchService.scroll(todoSearchParamsDto, cursor, auth);
+    }
+
+    @PatchMapping
+    public BulkOperationResultDto update(@RequestParam(value = "title", required = false) String title,
+                                         @RequestParam(value = "priority", required = false) Todo.Priority priority,
+                                         @RequestParam(value = "completed", required = false) Boolean completed,
+                                         @RequestBody TodoToAddDto update, Authentication auth) {
+        TodoSearchParamsDto todoSearchParamsDto = new TodoSearchParamsDto(title, priority, completed, null);
+        return new BulkOperationResultDto(searchService.update(todoSearchParamsDto, update, auth));
+    }
+
+    @DeleteMapping
+    public BulkOperationResultDto delete(@RequestParam(value = "title", required = false) String title,
+                                         @RequestParam(value = "priority", required = false) Todo.Priority priority,
+                                         @RequestParam(value = "completed", required = false) Boolean completed,
+                                         Authentication auth) {
+        TodoSearchParamsDto todoSearchParamsDto = new TodoSearchParamsDto(title, priority, completed, null);
+        return new BulkOperationResultDto(searchService.delete(todoSearchParamsDto, auth));
+    }
+
+    @ExceptionHandler(InvalidTodoRequestException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String invalidTodoRequestHandler(InvalidTodoRequestException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String invalidCursorHandler(InvalidCursorException e) {
+        return e.getMessage();
     }
 
     @ExceptionHandler(UsernameNotFoundException.class)
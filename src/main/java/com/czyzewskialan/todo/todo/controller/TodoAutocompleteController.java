@@ -0,0 +1,27 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto;
+import com.czyzewskialan.todo.todo.service.TodoAutocompleteService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/todos/autocomplete")
+@RequiredArgsConstructor
+public class TodoAutocompleteController {
+
+    private final TodoAutocompleteService autocompleteService;
+
+    @GetMapping
+    public List<TodoTitleDto> complete(@RequestParam("prefix") String prefix,
+                                       @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                       Authentication auth) {
+        return autocompleteService.complete(prefix, limit, auth);
+    }
+}
@@ -1,17 +1,28 @@
 package com.czyzewskialan.todo.todo.controller;
 
 import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoOperationDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoResultDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSliceDto;
 import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.service.ExpectedVersion;
+import com.czyzewskialan.todo.todo.service.InvalidCursorException;
+import com.czyzewskialan.todo.todo.service.InvalidTodoRequestException;
 import com.czyzewskialan.todo.todo.service.TodoService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/todos")
@@ -21,8 +32,31 @@ public class TodoController {
     private final TodoService todoService;
 
     @GetMapping
-    public Page<TodoDto> getAll(Pageable pageRequest, Authentication auth) {
-        return todoService.findAll(pageRequest, auth);
+    public ResponseEntity<Slice<TodoDto>> getAll(@RequestParam(value = "count", defaultValue = "true") boolean count,
+                                                 Pageable pageRequest, WebRequest request, Authentication auth) {
+        String eTag = todoService.getETag(pageRequest, count, auth);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(count ? todoService.findAll(pageRequest, auth) : todoService.findSlice(pageRequest, auth));
+    }
+
+    @GetMapping(params = "ids")
+    public List<TodoResultDto> getMany(@RequestParam("ids") List<Long> ids, Authentication auth) {
+        return todoService.getMany(ids, auth);
+    }
+
+    @PostMapping("/batch")
+    public List<TodoResultDto> batch(@RequestBody List<TodoOperationDto> operations, Authentication auth) {
+        return todoService.batch(operations, auth);
+    }
+
+    @GetMapping("/scroll")
+    public TodoSliceDto scroll(@RequestParam(value = "cursor", required = false) String cursor,
+                               Pageable pageRequest, Authentication auth) {
+        return todoService.scroll(pageRequest, cursor, auth);
     }
 
     @PostMapping
@@ -31,14 +65,34 @@ public class TodoController {
         return todoService.create(todo, auth);
     }
 
+    /**
+     * Revalidates with a version-only query when the client sends If-None-Match, so an unchanged todo is neither
+     * loaded nor serialized.
+     */
     @GetMapping("/{id}")
-    public TodoDto getOne(@PathVariable("id") Long id, Authentication auth) {
-        return todoService.getOne(id, auth);
+    public ResponseEntity<TodoDto> getOne(@PathVariable("id") Long id, WebRequest request, Authentication auth) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(eTag(todoService.getVersion(id, auth)))) {
+            return null;
+        }
+        TodoDto todo = todoService.getOne(id, auth);
+        return ResponseEntity.ok().eTag(eTag(todo.version())).body(todo);
     }
 
     @PutMapping("/{id}")
-    public TodoDto update(@RequestBody TodoToAddDto todo, @PathVariable("id") Long id, Authentication auth) {
-        return todoService.update(todo, id, auth);
+    public ResponseEntity<TodoDto> update(@RequestBody TodoToAddDto todo, @PathVariable("id") Long id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          Authentication auth) {
+        TodoDto updatedTodo = todoService.update(todo, id, getExpectedVersion(ifMatch), auth);
+        return ResponseEntity.ok().eTag(eTag(updatedTodo.version())).body(updatedTodo);
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patch(@RequestBody TodoToAddDto todo, @PathVariable("id") Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                      Authentication auth) {
+        Long version = todoService.patch(todo, id, getExpectedVersion(ifMatch), auth);
+        return version == null ? ResponseEntity.noContent().build() : ResponseEntity.noContent().eTag(eTag(version)).build();
     }
 
     @DeleteMapping("/{id}")
@@ -52,9 +106,56 @@ public class TodoController {
         return "Todo not found";
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(value = HttpStatus.PRECONDITION_FAILED)
+    public String optimisticLockingFailureHandler(OptimisticLockingFailureException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidTodoRequestException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String invalidTodoRequestHandler(InvalidTodoRequestException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String invalidCursorHandler(InvalidCursorException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     @ResponseStatus(value = HttpStatus.UNAUTHORIZED)
     public String usernameNotFoundHandler(UsernameNotFoundException e) {
         return String.format("User \"%s\" does not exist.", e.getMessage());
     }
+
+    private static String eTag(Long version) {
+        return String.valueOf(version);
+    }
+
+    /**
+     * Todo ETags are their quoted versions, and {@code *} matches any version of an existing todo. Any other tag,
+     * including a weak or negative one, cannot match.
+     */
+    private static ExpectedVersion getExpectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return ExpectedVersion.ANY;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                if (version >= 0) {
+                    return ExpectedVersion.of(version);
+                }
+            } catch (NumberFormatException e) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new OptimisticLockingFailureException(String.format("ETag %s does not match the todo.", ifMatch));
+    }
 }
@@ -0,0 +1,28 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.service.TodoExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+@RestController
+@RequestMapping("/todos/export")
+@RequiredArgsConstructor
+public class TodoExportController {
+
+    private final TodoExportService exportService;
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(Authentication auth) {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(outputStream -> exportService.export(auth, outputStream));
+    }
+}
@@ -0,0 +1,25 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoSearchHitDto;
+import com.czyzewskialan.todo.todo.service.TodoFullTextSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/search/todos/full-text")
+@RequiredArgsConstructor
+public class TodoFullTextSearchController {
+
+    private final TodoFullTextSearchService fullTextSearchService;
+
+    @GetMapping
+    public Page<TodoSearchHitDto> search(@RequestParam("q") String query, Pageable pageRequest, Authentication auth) {
+        return fullTextSearchService.search(query, pageRequest, auth);
+    }
+}
@@ -0,0 +1,27 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoImportResultDto;
+import com.czyzewskialan.todo.todo.service.TodoImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+@RestController
+@RequestMapping("/todos/import")
+@RequiredArgsConstructor
+public class TodoImportController {
+
+    private final TodoImportService importService;
+
+    @PostMapping(consumes = APPLICATION_NDJSON_VALUE)
+    public TodoImportResultDto importTodos(HttpServletRequest request, Authentication auth) throws IOException {
+        return importService.importTodos(request.getInputStream(), auth);
+    }
+}
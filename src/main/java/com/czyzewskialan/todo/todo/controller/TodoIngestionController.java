@@ -0,0 +1,75 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTicketDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.service.InvalidTodoRequestException;
+import com.czyzewskialan.todo.todo.service.TodoIngestionRejectedException;
+import com.czyzewskialan.todo.todo.service.TodoIngestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Opt-in asynchronous creation of todos: {@code POST /todos?async=true} queues the todo and answers with a ticket,
+ * which is polled at {@code /todos/tickets/{ticket}}. With {@code durable=true} the answer waits for the commit.
+ */
+@RestController
+@RequestMapping("/todos")
+@RequiredArgsConstructor
+public class TodoIngestionController {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final TodoIngestionService ingestionService;
+
+    @PostMapping(params = "async=true")
+    public ResponseEntity<TodoTicketDto> create(@RequestBody TodoToAddDto todo,
+                                                @RequestParam(value = "durable", defaultValue = "false") boolean durable,
+                                                Authentication auth) {
+        TodoTicketDto ticket = ingestionService.submit(todo, durable, auth);
+        return switch (ticket.status()) {
+            case CREATED -> ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/todos/{id}").buildAndExpand(ticket.id()).toUri()).body(ticket);
+            case PENDING -> ResponseEntity.accepted().location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/todos/tickets/{ticket}").buildAndExpand(ticket.ticket()).toUri()).body(ticket);
+            case FAILED -> ResponseEntity.internalServerError().body(ticket);
+        };
+    }
+
+    @GetMapping("/tickets/{ticket}")
+    public TodoTicketDto getTicket(@PathVariable("ticket") String ticket, Authentication auth) {
+        return ingestionService.getTicket(ticket, auth);
+    }
+
+    @ExceptionHandler(TodoIngestionRejectedException.class)
+    public ResponseEntity<String> ingestionRejectedHandler(TodoIngestionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidTodoRequestException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String invalidTodoRequestHandler(InvalidTodoRequestException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    @ResponseStatus(value = HttpStatus.NOT_FOUND)
+    public String notFoundHandler() {
+        return "Ticket not found";
+    }
+}
@@ -0,0 +1,22 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.service.TodoStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/todos/stats")
+@RequiredArgsConstructor
+public class TodoStatsController {
+
+    private final TodoStatsService statsService;
+
+    @GetMapping
+    public TodoStatsDto getStats(Authentication auth) {
+        return statsService.getStats(auth);
+    }
+}
@@ -2,6 +2,7 @@ package com.czyzewskialan.todo.todo.controller.dto;
 
 import com.czyzewskialan.todo.todo.domain.Todo;
 import com.czyzewskialan.todo.user.controller.dto.User2UserDtoConverter;
+import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
@@ -14,7 +15,14 @@ public class Todo2TodoDtoConverter implements Function<Todo, TodoDto> {
 
     @Override
     public TodoDto apply(Todo todo) {
+        return apply(todo, user2UserDtoConverter.apply(todo.getUser()));
+    }
+
+    /**
+     * Converts the todo with its owner already described, so that an owner held as a reference is not loaded.
+     */
+    public TodoDto apply(Todo todo, UserDto user) {
         return new TodoDto(todo.getTitle(), todo.getPriority(), todo.getDescription(), todo.getCompleted(),
-                todo.getDateCreated(), todo.getDateUpdated(), user2UserDtoConverter.apply(todo.getUser()));
+                todo.getDateCreated(), todo.getDateUpdated(), todo.getVersion(), user);
     }
 }
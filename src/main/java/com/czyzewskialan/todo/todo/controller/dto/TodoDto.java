@@ -2,9 +2,20 @@ package com.czyzewskialan.todo.todo.controller.dto;
 
 import com.czyzewskialan.todo.todo.domain.Todo;
 import com.czyzewskialan.todo.user.controller.dto.UserDto;
+import com.czyzewskialan.todo.user.domain.User;
 
 import java.time.LocalDateTime;
 
 public record TodoDto(String title, Todo.Priority priority, String description, Boolean completed,
-                      LocalDateTime dateCreated, LocalDateTime dateUpdated, UserDto user) {
+                      LocalDateTime dateCreated, LocalDateTime dateUpdated, Long version, UserDto user) {
+
+    /**
+     * Flattened form used by JPQL and criteria constructor expressions, which cannot nest {@code new UserDto(...)}.
+     */
+    public TodoDto(String title, Todo.Priority priority, String description, Boolean completed,
+                   LocalDateTime dateCreated, LocalDateTime dateUpdated, Long version,
+                   String userLogin, User.Role userRole, LocalDateTime userDateCreated, LocalDateTime userDateUpdated) {
+        this(title, priority, description, completed, dateCreated, dateUpdated, version,
+                new UserDto(userLogin, userRole, userDateCreated, userDateUpdated));
+    }
 }
@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+public record TodoImportErrorDto(long line, String message) {
+}
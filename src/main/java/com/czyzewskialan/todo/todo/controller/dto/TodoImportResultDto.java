@@ -0,0 +1,7 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+import java.util.List;
+
+public record TodoImportResultDto(long imported, long failed, long durationMillis, double rowsPerSecond,
+                                  List<TodoImportErrorDto> errors) {
+}
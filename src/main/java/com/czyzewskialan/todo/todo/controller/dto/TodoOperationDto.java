@@ -0,0 +1,8 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+public record TodoOperationDto(Type type, Long id, TodoToAddDto todo) {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+}
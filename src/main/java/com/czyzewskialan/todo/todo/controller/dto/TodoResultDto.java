@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+public record TodoResultDto(Long id, int status, TodoDto todo, String error) {
+}
@@ -0,0 +1,7 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+import java.util.List;
+
+public record TodoSearchHitDto(Long id, String title, String description, float score,
+                               List<TodoHighlightDto> highlights) {
+}
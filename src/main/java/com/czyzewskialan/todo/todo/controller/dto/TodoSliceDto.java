@@ -0,0 +1,6 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+import java.util.List;
+
+public record TodoSliceDto(List<TodoDto> content, boolean hasNext, String nextCursor) {
+}
@@ -0,0 +1,27 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+import com.czyzewskialan.todo.todo.domain.Todo;
+
+import static java.lang.Boolean.TRUE;
+
+public record TodoStatsDto(long total, long completed, long highPriority, long mediumPriority, long lowPriority) {
+    public static final TodoStatsDto EMPTY = new TodoStatsDto(0, 0, 0, 0, 0);
+
+    /**
+     * Returns the counts of a single todo with the given completion and priority.
+     */
+    public static TodoStatsDto of(Boolean completed, Todo.Priority priority) {
+        return new TodoStatsDto(1, TRUE.equals(completed) ? 1 : 0, priority == Todo.Priority.HIGH ? 1 : 0,
+                priority == Todo.Priority.MEDIUM ? 1 : 0, priority == Todo.Priority.LOW ? 1 : 0);
+    }
+
+    public TodoStatsDto plus(TodoStatsDto other) {
+        return new TodoStatsDto(total + other.total, completed + other.completed, highPriority + other.highPriority,
+                mediumPriority + other.mediumPriority, lowPriority + other.lowPriority);
+    }
+
+    public TodoStatsDto minus(TodoStatsDto other) {
+        return new TodoStatsDto(total - other.total, completed - other.completed, highPriority - other.highPriority,
+                mediumPriority - other.mediumPriority, lowPriority - other.lowPriority);
+    }
+}
@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+public record TodoTextDto(Long id, String login, String title, String description) {
+}
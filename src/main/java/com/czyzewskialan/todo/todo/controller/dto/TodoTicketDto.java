@@ -0,0 +1,8 @@
+package com.czyzewskialan.todo.todo.controller.dto;
+
+public record TodoTicketDto(String ticket, Status status, Long id, String error) {
+
+    public enum Status {
+        PENDING, CREATED, FAILED
+    }
+}
@@ -1,7 +1,9 @@
 package com.czyzewskialan.todo.todo.domain;
 
+import com.czyzewskialan.todo.todo.persistance.TodoEntityListener;
 import com.czyzewskialan.todo.user.domain.User;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -10,6 +12,8 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Entity
+@DynamicUpdate
+@EntityListeners(TodoEntityListener.class)
 @Table(name = "TODOS")
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +28,8 @@ public class Todo implements Serializable {
     private static final long serialVersionUID = 7831108035613382655L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todos_seq")
+    @SequenceGenerator(name = "todos_seq", sequenceName = "todos_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -40,11 +45,28 @@ public class Todo implements Serializable {
 
     private LocalDateTime dateUpdated;
 
+    @Version
+    private Long version;
+
     @ToString.Exclude
     @ManyToOne
     @JoinColumn(name = "username", nullable = false)
     private User user;
 
+    /**
+     * Completion and priority as last read from or written to the database, so that the entity listener can tell
+     * how an update moves the todo between the counted groups.
+     */
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Boolean storedCompleted;
+
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Priority storedPriority;
+
     @PrePersist
     void prePersist() {
         LocalDateTime now = LocalDateTime.now();
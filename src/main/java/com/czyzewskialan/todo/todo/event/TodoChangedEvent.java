@@ -0,0 +1,10 @@
+package com.czyzewskialan.todo.todo.event;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+
+/**
+ * Published once a change of todos has been committed. The login is null when the change may have touched todos of
+ * any user, and the difference of the counts is null when the statement that made the change does not tell it.
+ */
+public record TodoChangedEvent(String login, TodoStatsDto difference) {
+}
@@ -0,0 +1,9 @@
+package com.czyzewskialan.todo.todo.event;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+
+/**
+ * Published by the reconciliation of the statistics with the counts of all todos it has just made.
+ */
+public record TodoStatsCountedEvent(TodoStatsDto total) {
+}
@@ -0,0 +1,92 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTextDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.event.TodoChangedEvent;
+import com.czyzewskialan.todo.todo.service.TodoFullTextIndex;
+import com.czyzewskialan.todo.todo.service.TodoResultCache;
+import com.czyzewskialan.todo.todo.service.TodoTitleIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+
+import static com.czyzewskialan.todo.utils.TransactionUtils.afterCommit;
+
+@RequiredArgsConstructor
+public class TodoEntityListener {
+
+    private final TodoTitleIndex titleIndex;
+    private final TodoFullTextIndex fullTextIndex;
+    private final TodoResultCache resultCache;
+    private final TodoStatsChanges statsChanges;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    void postLoad(Todo todo) {
+        markStored(todo);
+        statsChanges.track();
+    }
+
+    @PrePersist
+    @PreRemove
+    void preWrite(Todo todo) {
+        statsChanges.track();
+    }
+
+    @PostPersist
+    void postPersist(Todo todo) {
+        TodoStatsDto difference = TodoStatsDto.of(todo.getCompleted(), todo.getPriority());
+        statsChanges.add(todo.getUser().getLogin(), difference);
+        markStored(todo);
+        postSave(todo, difference);
+    }
+
+    @PostUpdate
+    void postUpdate(Todo todo) {
+        TodoStatsDto difference = TodoStatsDto.of(todo.getCompleted(), todo.getPriority())
+                .minus(TodoStatsDto.of(todo.getStoredCompleted(), todo.getStoredPriority()));
+        statsChanges.add(todo.getUser().getLogin(), difference);
+        markStored(todo);
+        postSave(todo, difference);
+    }
+
+    private void postSave(Todo todo, TodoStatsDto difference) {
+        String login = todo.getUser().getLogin();
+        Long id = todo.getId();
+        String title = todo.getTitle();
+        TodoTextDto text = new TodoTextDto(id, login, title, todo.getDescription());
+        afterCommit(() -> {
+            resultCache.invalidate(login);
+            titleIndex.put(login, id, title);
+            fullTextIndex.put(text);
+            eventPublisher.publishEvent(new TodoChangedEvent(login, difference));
+        });
+    }
+
+    @PostRemove
+    void postRemove(Todo todo) {
+        String login = todo.getUser().getLogin();
+        TodoStatsDto difference = TodoStatsDto.EMPTY.minus(
+                TodoStatsDto.of(todo.getStoredCompleted(), todo.getStoredPriority()));
+        statsChanges.add(login, difference);
+        Long id = todo.getId();
+        afterCommit(() -> {
+            resultCache.invalidate(login);
+            titleIndex.remove(login, id);
+            fullTextIndex.remove(login, id);
+            eventPublisher.publishEvent(new TodoChangedEvent(login, difference));
+        });
+    }
+
+    private static void markStored(Todo todo) {
+        todo.setStoredCompleted(todo.getCompleted());
+        todo.setStoredPriority(todo.getPriority());
+    }
+}
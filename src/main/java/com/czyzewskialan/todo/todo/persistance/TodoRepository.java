@@ -1,15 +1,68 @@
 package com.czyzewskialan.todo.todo.persistance;
 
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTextDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto;
 import com.czyzewskialan.todo.todo.domain.Todo;
-import com.czyzewskialan.todo.user.domain.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, Long>, JpaSpecificationExecutor<Todo> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, JpaSpecificationExecutor<Todo>, TodoRepositoryCustom {
+    String SELECT_TODO_DTO = "select new com.czyzewskialan.todo.todo.controller.dto.TodoDto(t.title, t.priority, "
+            + "t.description, t.completed, t.dateCreated, t.dateUpdated, t.version, u.login, u.role, u.dateCreated, "
+            + "u.dateUpdated) "
+            + "from Todo t join t.user u";
+    String SELECT_TODO_TEXT_DTO = "select new com.czyzewskialan.todo.todo.controller.dto.TodoTextDto(t.id, "
+            + "t.user.login, t.title, t.description) from Todo t";
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Todo> findAllById(Iterable<Long> ids);
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Optional<Todo> findOne(Specification<Todo> spec);
+
+    @Query("select t.version from Todo t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select t.version from Todo t where t.id = :id and t.user.login = :login")
+    Optional<Long> findVersionByIdAndUserLogin(@Param("id") Long id, @Param("login") String login);
+
+    @Query("select t.user.login from Todo t where t.id = :id")
+    Optional<String> findUserLoginById(@Param("id") Long id);
+
+    @Query("select new com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto(t.id, t.title) from Todo t "
+            + "where t.user.login = :login")
+    List<TodoTitleDto> findTitlesByUserLogin(@Param("login") String login);
+
+    @Query(SELECT_TODO_DTO + " order by t.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<TodoDto> streamAllDtos();
+
+    @Query(SELECT_TODO_DTO + " where u.login = :login order by t.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<TodoDto> streamDtosByUserLogin(@Param("login") String login);
+
+    @Query(SELECT_TODO_TEXT_DTO)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<TodoTextDto> streamTextDtos();
 
-    Page<Todo> findByUser(User user, Pageable pageable);
+    @Query(SELECT_TODO_TEXT_DTO + " where t.user.login = :login")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<TodoTextDto> streamTextDtosByUserLogin(@Param("login") String login);
 }
@@ -0,0 +1,44 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface TodoRepositoryCustom {
+
+    /**
+     * Fetches one row more than the page size to tell whether a next slice exists, without counting all matches.
+     */
+    Slice<Todo> findSlice(Specification<Todo> spec, Pageable pageable);
+
+    /**
+     * Selects the listed columns straight into {@link TodoDto}, so no entities enter the persistence context.
+     */
+    Page<TodoDto> findAllDtos(Specification<Todo> spec, Pageable pageable);
+
+    Slice<TodoDto> findDtoSlice(Specification<Todo> spec, Pageable pageable);
+
+    Optional<TodoDto> findDto(Specification<Todo> spec);
+
+    /**
+     * Sets the given attributes on every matching todo with a single UPDATE statement. Entity callbacks do not run.
+     */
+    int bulkUpdate(Specification<Todo> spec, Map<String, Object> values);
+
+    /**
+     * Removes every matching todo with a single DELETE statement.
+     */
+    int bulkDelete(Specification<Todo> spec);
+
+    /**
+     * Persists and flushes the todos as one JDBC batch, then detaches them so the persistence context does not grow.
+     */
+    void persistBatch(List<Todo> todos);
+}
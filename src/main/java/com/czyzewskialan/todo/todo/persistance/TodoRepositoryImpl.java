@@ -0,0 +1,149 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.user.domain.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.nonNull;
+import static org.springframework.data.jpa.repository.EntityGraph.EntityGraphType.LOAD;
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class TodoRepositoryImpl implements TodoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Todo> findSlice(Specification<Todo> spec, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Todo> query = builder.createQuery(Todo.class);
+        Root<Todo> root = query.from(Todo.class);
+        applySpecification(spec, root, query, builder);
+        query.orderBy(toOrders(pageable.getSort(), root, builder));
+
+        EntityGraph<Todo> graph = entityManager.createEntityGraph(Todo.class);
+        graph.addAttributeNodes("user");
+        return toSlice(entityManager.createQuery(query).setHint(LOAD.getKey(), graph), pageable);
+    }
+
+    @Override
+    public Page<TodoDto> findAllDtos(Specification<Todo> spec, Pageable pageable) {
+        TypedQuery<TodoDto> query = createDtoQuery(spec, pageable);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<TodoDto> findDtoSlice(Specification<Todo> spec, Pageable pageable) {
+        return toSlice(createDtoQuery(spec, pageable), pageable);
+    }
+
+    @Override
+    public Optional<TodoDto> findDto(Specification<Todo> spec) {
+        return createDtoQuery(spec, Pageable.unpaged()).setMaxResults(1).getResultList().stream().findFirst();
+    }
+
+    @Override
+    public int bulkUpdate(Specification<Todo> spec, Map<String, Object> values) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Todo> update = builder.createCriteriaUpdate(Todo.class);
+        Root<Todo> root = update.from(Todo.class);
+        values.forEach(update::set);
+        update.set(root.<Long>get("version"), builder.sum(root.get("version"), 1L));
+        Predicate predicate = toPredicate(spec, root, builder);
+        if (nonNull(predicate)) {
+            update.where(predicate);
+        }
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public int bulkDelete(Specification<Todo> spec) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaDelete<Todo> delete = builder.createCriteriaDelete(Todo.class);
+        Root<Todo> root = delete.from(Todo.class);
+        Predicate predicate = toPredicate(spec, root, builder);
+        if (nonNull(predicate)) {
+            delete.where(predicate);
+        }
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    @Override
+    public void persistBatch(List<Todo> todos) {
+        todos.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private TypedQuery<TodoDto> createDtoQuery(Specification<Todo> spec, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TodoDto> query = builder.createQuery(TodoDto.class);
+        Root<Todo> root = query.from(Todo.class);
+        Join<Todo, User> user = root.join("user");
+        query.select(builder.construct(TodoDto.class,
+                root.get("title"), root.get("priority"), root.get("description"), root.get("completed"),
+                root.get("dateCreated"), root.get("dateUpdated"), root.get("version"),
+                user.get("login"), user.get("role"), user.get("dateCreated"), user.get("dateUpdated")));
+        applySpecification(spec, root, query, builder);
+        query.orderBy(toOrders(pageable.getSort(), root, builder));
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Todo> spec) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Todo> root = query.from(Todo.class);
+        query.select(builder.count(root));
+        applySpecification(spec, root, query, builder);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Specifications only receive a {@link CriteriaQuery}, so update and delete statements pass none. Specifications
+     * used with them must not depend on the query.
+     */
+    private static Predicate toPredicate(Specification<Todo> spec, Root<Todo> root, CriteriaBuilder builder) {
+        return nonNull(spec) ? spec.toPredicate(root, null, builder) : null;
+    }
+
+    private static void applySpecification(Specification<Todo> spec, Root<Todo> root, CriteriaQuery<?> query,
+                                           CriteriaBuilder builder) {
+        Predicate predicate = nonNull(spec) ? spec.toPredicate(root, query, builder) : null;
+        if (nonNull(predicate)) {
+            query.where(predicate);
+        }
+    }
+
+    private static <T> Slice<T> toSlice(TypedQuery<T> query, Pageable pageable) {
+        List<T> content = query
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+}
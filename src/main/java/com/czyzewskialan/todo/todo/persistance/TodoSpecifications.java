@@ -0,0 +1,23 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.domain.Todo;
+import org.springframework.data.jpa.domain.Specification;
+
+public class TodoSpecifications {
+
+    private TodoSpecifications() {
+        throw new IllegalStateException("Cannot create an object of utility class");
+    }
+
+    public static Specification<Todo> ownedBy(String login) {
+        return (root, query, builder) -> builder.equal(root.get("user").get("login"), login);
+    }
+
+    public static Specification<Todo> hasId(Long id) {
+        return (root, query, builder) -> builder.equal(root.get("id"), id);
+    }
+
+    public static Specification<Todo> hasVersion(Long version) {
+        return (root, query, builder) -> builder.equal(root.get("version"), version);
+    }
+}
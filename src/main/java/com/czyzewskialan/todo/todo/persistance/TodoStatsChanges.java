@@ -0,0 +1,95 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the differences of the per-user todo counters made by a transaction and adds them to TODO_STATS once per
+ * user just before the transaction commits, so that writing many todos costs one statement per user and the user's
+ * counter row stays locked only from the end of the transaction.
+ * <p>
+ * The entity manager is flushed first, as the writes left for the commit would only reach the entity listener after
+ * this synchronization has run. Users are written in login order, so that concurrent transactions writing the todos
+ * of several users lock their rows in the same order.
+ */
+@Component
+@RequiredArgsConstructor
+class TodoStatsChanges {
+
+    private final TodoStatsRepository statsRepository;
+    /**
+     * Looked up when first used, as the entity listener depending on this class is created with the entity manager
+     * factory.
+     */
+    private final ObjectProvider<EntityManager> entityManager;
+
+    /**
+     * Starts collecting the differences of the current writing transaction. Has to be called before the transaction
+     * starts to commit, which is why the entity listener calls it as soon as a todo is loaded, persisted or removed.
+     */
+    void track() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        Differences differences = new Differences();
+        TransactionSynchronizationManager.bindResource(this, differences);
+        TransactionSynchronizationManager.registerSynchronization(differences);
+    }
+
+    /**
+     * Adds the difference to the ones collected for the user, or right away when the transaction does not collect
+     * them or has already written them.
+     */
+    void add(String login, TodoStatsDto difference) {
+        if (difference.equals(TodoStatsDto.EMPTY)) {
+            return;
+        }
+        Differences differences = (Differences) TransactionSynchronizationManager.getResource(this);
+        if (differences == null || differences.written) {
+            statsRepository.add(login, difference);
+        } else {
+            differences.byLogin.merge(login, difference, TodoStatsDto::plus);
+        }
+    }
+
+    private class Differences implements TransactionSynchronization {
+        private final Map<String, TodoStatsDto> byLogin = new TreeMap<>();
+        private boolean written;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entityManager.getObject().flush();
+            byLogin.forEach((login, difference) -> {
+                if (!difference.equals(TodoStatsDto.EMPTY)) {
+                    statsRepository.add(login, difference);
+                }
+            });
+            written = true;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(TodoStatsChanges.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TodoStatsChanges.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TodoStatsChanges.this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Per-user todo counters in the TODO_STATS table. Changes of single todos are added to the counters once per user at
+ * the end of the writing transaction (see {@link TodoStatsChanges}), while statements changing many todos at once
+ * only mark the counters dirty. A missing or dirty row is recounted from the TODOS table when it is read.
+ * <p>
+ * Recounting locks the row first, so a concurrent change is either already added to the locked row or waits for the
+ * recount to commit and is added on top of it.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class TodoStatsRepository {
+    private static final String COLUMNS = "total, completed, high_priority, medium_priority, low_priority";
+    private static final String COUNT_COLUMNS = "count(*) total, "
+            + "count(case when completed then 1 end) completed, "
+            + "count(case when priority = 0 then 1 end) high_priority, "
+            + "count(case when priority = 1 then 1 end) medium_priority, "
+            + "count(case when priority = 2 then 1 end) low_priority";
+    private static final RowMapper<TodoStatsDto> STATS_MAPPER = (rs, rowNum) -> new TodoStatsDto(
+            rs.getLong("total"), rs.getLong("completed"), rs.getLong("high_priority"),
+            rs.getLong("medium_priority"), rs.getLong("low_priority"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the difference to the user's counters. A user without counters gets a dirty row, as the difference alone
+     * says nothing about the todos the user already has.
+     * <p>
+     * The merge does not lock a missing row, so two transactions adding the first differences of a user can both try
+     * to insert it. The one that gets a duplicate key adds its difference to the row the other one inserted.
+     */
+    public void add(String login, TodoStatsDto difference) {
+        try {
+            merge(login, difference);
+        } catch (DuplicateKeyException e) {
+            log.debug("Counters of {} have been inserted concurrently, adding the difference to them.", login);
+            merge(login, difference);
+        }
+    }
+
+    private void merge(String login, TodoStatsDto difference) {
+        jdbcTemplate.update("""
+                        merge into todo_stats s
+                        using (select cast(? as varchar(255)) username, cast(? as bigint) total,
+                                      cast(? as bigint) completed, cast(? as bigint) high_priority,
+                                      cast(? as bigint) medium_priority, cast(? as bigint) low_priority) d
+                        on s.username = d.username
+                        when matched then update set s.total = s.total + d.total,
+                                                     s.completed = s.completed + d.completed,
+                                                     s.high_priority = s.high_priority + d.high_priority,
+                                                     s.medium_priority = s.medium_priority + d.medium_priority,
+                                                     s.low_priority = s.low_priority + d.low_priority
+                        when not matched then insert (username, dirty) values (d.username, true)""",
+                login, difference.total(), difference.completed(), difference.highPriority(),
+                difference.mediumPriority(), difference.lowPriority());
+    }
+
+    public void markDirty(String login) {
+        jdbcTemplate.update("update todo_stats set dirty = true where username = ?", login);
+    }
+
+    public void markAllDirty() {
+        jdbcTemplate.update("update todo_stats set dirty = true");
+    }
+
+    /**
+     * Returns the user's counters, unless they are missing or dirty.
+     */
+    public Optional<TodoStatsDto> findByLogin(String login) {
+        return jdbcTemplate.query("select " + COLUMNS + " from todo_stats where username = ? and not dirty",
+                STATS_MAPPER, login).stream().findFirst();
+    }
+
+    /**
+     * Returns the counters of all users that are not dirty.
+     */
+    public Map<String, TodoStatsDto> findAll() {
+        return query("select username, " + COLUMNS + " from todo_stats where not dirty");
+    }
+
+    /**
+     * Counts the todos of all users that have any.
+     */
+    public Map<String, TodoStatsDto> countAll() {
+        return query("select username, " + COUNT_COLUMNS + " from todos group by username");
+    }
+
+    /**
+     * Counts the todos of all users together.
+     */
+    public TodoStatsDto countTotal() {
+        return jdbcTemplate.queryForObject("select " + COUNT_COLUMNS + " from todos", STATS_MAPPER);
+    }
+
+    /**
+     * Replaces the user's counters with the counts of the user's todos. Returns the counters found before, which are
+     * null when they were missing or dirty, together with the new ones.
+     */
+    @Transactional
+    public Recount recount(String login) {
+        TodoStatsDto previous = jdbcTemplate.query(
+                        "select " + COLUMNS + ", dirty from todo_stats where username = ? for update",
+                        (rs, rowNum) -> rs.getBoolean("dirty")
+                                ? Optional.<TodoStatsDto>empty() : Optional.of(STATS_MAPPER.mapRow(rs, rowNum)),
+                        login)
+                .stream().findFirst().flatMap(Function.identity()).orElse(null);
+        TodoStatsDto current = jdbcTemplate.queryForObject(
+                "select " + COUNT_COLUMNS + " from todos where username = ?", STATS_MAPPER, login);
+        jdbcTemplate.update("merge into todo_stats (username, " + COLUMNS + ", dirty) key (username) "
+                        + "values (?, ?, ?, ?, ?, ?, false)",
+                login, current.total(), current.completed(), current.highPriority(), current.mediumPriority(),
+                current.lowPriority());
+        return new Recount(previous, current);
+    }
+
+    private Map<String, TodoStatsDto> query(String sql) {
+        Map<String, TodoStatsDto> stats = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            stats.put(rs.getString("username"), STATS_MAPPER.mapRow(rs, rs.getRow()));
+        });
+        return stats;
+    }
+
+    public record Recount(TodoStatsDto previous, TodoStatsDto current) {
+    }
+}
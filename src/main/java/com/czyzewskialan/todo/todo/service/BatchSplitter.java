@@ -0,0 +1,48 @@
+package com.czyzewskialan.todo.todo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Writes a batch at once and, when the database rejects it, writes both halves on their own until only the rejected
+ * items are left, so that a bad item fails alone instead of with the whole batch.
+ */
+@Slf4j
+class BatchSplitter {
+
+    private BatchSplitter() {
+        throw new IllegalStateException("Cannot create an object of utility class");
+    }
+
+    /**
+     * Passes every part of the batch that has been written to {@code written}, together with the result of writing
+     * it, and every item that has been rejected on its own to {@code rejected}.
+     */
+    static <T, R> void write(List<T> batch, Function<List<T>, R> write, BiConsumer<List<T>, R> written,
+                             BiConsumer<T, NestedRuntimeException> rejected) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        R result;
+        try {
+            result = write.apply(batch);
+        } catch (DataAccessException | TransactionException e) {
+            if (batch.size() == 1) {
+                rejected.accept(batch.get(0), e);
+            } else {
+                log.debug("Batch of {} items has been rejected, writing its halves.", batch.size(), e);
+                int middle = batch.size() >>> 1;
+                write(batch.subList(0, middle), write, written, rejected);
+                write(batch.subList(middle, batch.size()), write, written, rejected);
+            }
+            return;
+        }
+        written.accept(batch, result);
+    }
+}
@@ -0,0 +1,25 @@
+package com.czyzewskialan.todo.todo.service;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Version a write expects the todo to have, as sent in If-Match. {@link #ANY} stands for {@code *}, which matches
+ * any version of an existing todo, and is kept apart from the versions themselves, which are never negative.
+ */
+public record ExpectedVersion(Long version) {
+    public static final ExpectedVersion ANY = new ExpectedVersion(null);
+
+    public ExpectedVersion {
+        if (nonNull(version) && version < 0) {
+            throw new IllegalArgumentException("Todo versions are not negative.");
+        }
+    }
+
+    public static ExpectedVersion of(long version) {
+        return new ExpectedVersion(version);
+    }
+
+    public boolean isAny() {
+        return version == null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.czyzewskialan.todo.todo.service;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.czyzewskialan.todo.todo.service;
+
+/**
+ * A request for todos that cannot be served as sent, answered with 400.
+ */
+public class InvalidTodoRequestException extends RuntimeException {
+
+    public InvalidTodoRequestException(String message) {
+        super(message);
+    }
+}
@@ -3,41 +3,117 @@ package com.czyzewskialan.todo.todo.service;
 import com.czyzewskialan.todo.todo.controller.dto.Todo2TodoDtoConverter;
 import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
 import com.czyzewskialan.todo.todo.controller.dto.TodoSearchParamsDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSliceDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
 import com.czyzewskialan.todo.todo.domain.Todo;
 import com.czyzewskialan.todo.todo.persistance.TodoRepository;
-import com.czyzewskialan.todo.user.service.UserService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
 import static com.czyzewskialan.todo.security.SecurityUtils.isAdminLoggedIn;
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.ownedBy;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static org.springframework.data.jpa.domain.Specification.where;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SearchTodoService {
 
     private final TodoRepository todoRepository;
-    private final UserService userService;
     private final Todo2TodoDtoConverter todo2TodoDtoConverter;
+    private final TodoResultCache resultCache;
+    private final TodoBulkChanges bulkChanges;
 
     public Page<TodoDto> find(TodoSearchParamsDto searchParams, Authentication auth) {
-        return todoRepository.findAll(
-                        where(getSpecificationUser(auth))
-                                .and(getSpecificationTitle(searchParams.getTitle()))
-                                .and(getSpecificationPriority(searchParams.getPriority()))
-                                .and(getSpecificationCompleted(searchParams.getCompleted())),
-                        searchParams.getPageRequest())
-                .map(todo2TodoDtoConverter);
+        return resultCache.get(getCacheScope(auth), getCacheQuery("find", searchParams),
+                () -> todoRepository.findAllDtos(getSpecification(searchParams, auth), searchParams.getPageRequest()));
+    }
+
+    public Slice<TodoDto> findSlice(TodoSearchParamsDto searchParams, Authentication auth) {
+        return resultCache.get(getCacheScope(auth), getCacheQuery("findSlice", searchParams),
+                () -> todoRepository.findDtoSlice(getSpecification(searchParams, auth), searchParams.getPageRequest()));
+    }
+
+    /**
+     * Returns the ETag of {@link #find} or {@link #findSlice} results without running the query.
+     */
+    public String getETag(TodoSearchParamsDto searchParams, boolean count, Authentication auth) {
+        return resultCache.tag(getCacheScope(auth), getCacheQuery(count ? "find" : "findSlice", searchParams));
+    }
+
+    public TodoSliceDto scroll(TodoSearchParamsDto searchParams, String cursor, Authentication auth) {
+        Pageable pageRequest = searchParams.getPageRequest();
+        TodoKeyset keyset = isNull(cursor) ? TodoKeyset.first(pageRequest.getSort()) : TodoKeyset.decode(cursor);
+        Slice<Todo> slice = todoRepository.findSlice(
+                getSpecification(searchParams, auth).and(keyset.toSpecification()),
+                PageRequest.of(0, pageRequest.getPageSize(), keyset.sort()));
+        return new TodoSliceDto(slice.map(todo2TodoDtoConverter).getContent(), slice.hasNext(), keyset.nextCursor(slice));
+    }
+
+    @Transactional
+    public int update(TodoSearchParamsDto searchParams, TodoToAddDto update, Authentication auth) {
+        Map<String, Object> values = TodoBulkChanges.toValues(update);
+        int updated = todoRepository.bulkUpdate(getSpecification(searchParams, auth), values);
+        bulkChanges.updated(getCacheScope(auth), values);
+        log.info("{} todos have been updated by {}.", updated, getLoggedInUsername(auth));
+        return updated;
+    }
+
+    /**
+     * Deletes the todos matching the filters. At least one filter is required, so a request without any does not
+     * delete every todo in scope.
+     */
+    @Transactional
+    public int delete(TodoSearchParamsDto searchParams, Authentication auth) {
+        if (!hasFilter(searchParams)) {
+            throw new InvalidTodoRequestException("At least one filter is required to delete todos.");
+        }
+        int deleted = todoRepository.bulkDelete(getSpecification(searchParams, auth));
+        bulkChanges.deleted(getCacheScope(auth));
+        log.info("{} todos have been removed from the database by {}.", deleted, getLoggedInUsername(auth));
+        return deleted;
+    }
+
+    private static String getCacheScope(Authentication auth) {
+        return isAdminLoggedIn(auth) ? null : getLoggedInUsername(auth);
+    }
+
+    private static List<Object> getCacheQuery(String operation, TodoSearchParamsDto searchParams) {
+        return Arrays.asList(operation, searchParams.getTitle(), searchParams.getPriority(), searchParams.getCompleted(),
+                searchParams.getPageRequest());
+    }
+
+    private static boolean hasFilter(TodoSearchParamsDto searchParams) {
+        return !isNullOrEmpty(searchParams.getTitle()) || nonNull(searchParams.getPriority())
+                || nonNull(searchParams.getCompleted());
+    }
+
+    private Specification<Todo> getSpecification(TodoSearchParamsDto searchParams, Authentication auth) {
+        return where(getSpecificationUser(auth))
+                .and(getSpecificationTitle(searchParams.getTitle()))
+                .and(getSpecificationPriority(searchParams.getPriority()))
+                .and(getSpecificationCompleted(searchParams.getCompleted()));
     }
 
     private Specification<Todo> getSpecificationUser(Authentication auth) {
         if (!isAdminLoggedIn(auth)) {
-            return (root, query, builder) -> builder.equal(root.get("user"), userService.getLoggedInUser(auth));
+            return ownedBy(getLoggedInUsername(auth));
         } else {
             return null;
         }
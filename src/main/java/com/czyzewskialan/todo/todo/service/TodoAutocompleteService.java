@@ -0,0 +1,26 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
+
+@Service
+@RequiredArgsConstructor
+public class TodoAutocompleteService {
+    static final int MAX_LIMIT = 100;
+
+    private final TodoRepository todoRepository;
+    private final TodoTitleIndex titleIndex;
+
+    public List<TodoTitleDto> complete(String prefix, int limit, Authentication auth) {
+        String username = getLoggedInUsername(auth);
+        return titleIndex.find(username, prefix, Math.min(Math.max(limit, 0), MAX_LIMIT),
+                () -> todoRepository.findTitlesByUserLogin(username));
+    }
+}
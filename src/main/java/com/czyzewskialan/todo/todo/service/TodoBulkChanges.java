@@ -0,0 +1,127 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.event.TodoChangedEvent;
+import com.czyzewskialan.todo.todo.persistance.TodoStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.czyzewskialan.todo.utils.TransactionUtils.afterCommit;
+import static java.util.Objects.nonNull;
+
+/**
+ * Support for update and delete statements that change todos without loading them. Such statements bypass the entity
+ * listener and do not tell which todos they changed, so the caches and text indexes are invalidated for the whole
+ * scope of the statement, and the statistics of the scope are marked dirty within the statement's transaction.
+ */
+@Component
+@RequiredArgsConstructor
+class TodoBulkChanges {
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String PRIORITY = "priority";
+    private static final String COMPLETED = "completed";
+
+    private final TodoResultCache resultCache;
+    private final TodoTitleIndex titleIndex;
+    private final TodoFullTextIndex fullTextIndex;
+    private final TodoStatsRepository statsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Returns the column values of the non-null fields of the update, together with the new modification time.
+     */
+    static Map<String, Object> toValues(TodoToAddDto update) {
+        Map<String, Object> values = new HashMap<>();
+        if (nonNull(update.title())) {
+            values.put(TITLE, update.title());
+        }
+        if (nonNull(update.priority())) {
+            values.put(PRIORITY, update.priority());
+        }
+        if (nonNull(update.description())) {
+            values.put(DESCRIPTION, update.description());
+        }
+        if (nonNull(update.completed())) {
+            values.put(COMPLETED, update.completed());
+        }
+        if (values.isEmpty()) {
+            throw new InvalidTodoRequestException("Nothing to update.");
+        }
+        values.put("dateUpdated", LocalDateTime.now());
+        return values;
+    }
+
+    /**
+     * Invalidates what the updated values may have changed for the user's todos, or for all todos when no login is
+     * given. The caches and indexes are invalidated once the transaction commits.
+     */
+    void updated(String login, Map<String, Object> values) {
+        boolean countsChanged = values.containsKey(PRIORITY) || values.containsKey(COMPLETED);
+        if (countsChanged) {
+            markStatsDirty(login);
+        }
+        boolean textChanged = values.containsKey(TITLE) || values.containsKey(DESCRIPTION);
+        afterCommit(() -> {
+            invalidate(login, values.containsKey(TITLE), textChanged);
+            eventPublisher.publishEvent(new TodoChangedEvent(login, countsChanged ? null : TodoStatsDto.EMPTY));
+        });
+    }
+
+    void deleted(String login) {
+        markStatsDirty(login);
+        afterCommit(() -> {
+            invalidate(login, true, true);
+            eventPublisher.publishEvent(new TodoChangedEvent(login, null));
+        });
+    }
+
+    /**
+     * Removes a single deleted todo of the user from the indexes once the transaction commits.
+     */
+    void deleted(String login, Long id) {
+        statsRepository.markDirty(login);
+        afterCommit(() -> {
+            resultCache.invalidate(login);
+            titleIndex.remove(login, id);
+            fullTextIndex.remove(login, id);
+            eventPublisher.publishEvent(new TodoChangedEvent(login, null));
+        });
+    }
+
+    private void markStatsDirty(String login) {
+        if (login == null) {
+            statsRepository.markAllDirty();
+        } else {
+            statsRepository.markDirty(login);
+        }
+    }
+
+    private void invalidate(String login, boolean titleChanged, boolean textChanged) {
+        if (login == null) {
+            resultCache.invalidateAll();
+        } else {
+            resultCache.invalidate(login);
+        }
+        if (titleChanged) {
+            if (login == null) {
+                titleIndex.invalidateAll();
+            } else {
+                titleIndex.invalidate(login);
+            }
+        }
+        if (textChanged) {
+            if (login == null) {
+                fullTextIndex.invalidateAll();
+            } else {
+                fullTextIndex.invalidate(login);
+            }
+        }
+    }
+}
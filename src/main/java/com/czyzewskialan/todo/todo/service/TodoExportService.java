@@ -0,0 +1,64 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
+import static com.czyzewskialan.todo.security.SecurityUtils.isAdminLoggedIn;
+
+/**
+ * Writes todos as newline delimited JSON while they are read from a database cursor. Rows are projected into DTOs,
+ * so the persistence context stays empty and memory use does not depend on the number of exported todos.
+ */
+@Service
+@Slf4j
+public class TodoExportService {
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final TodoRepository todoRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public TodoExportService(TodoRepository todoRepository, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.todoRepository = todoRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void export(Authentication auth, OutputStream outputStream) {
+        boolean admin = isAdminLoggedIn(auth);
+        String username = getLoggedInUsername(auth);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<TodoDto> todos = admin ? todoRepository.streamAllDtos() : todoRepository.streamDtosByUserLogin(username);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                long count = 0;
+                for (TodoDto todo : (Iterable<TodoDto>) todos::iterator) {
+                    generator.writeObject(todo);
+                    generator.writeRaw('\n');
+                    if (++count % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+                log.info("{} todos have been exported for {}.", count, username);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
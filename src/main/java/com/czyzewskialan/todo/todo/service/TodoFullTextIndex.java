@@ -0,0 +1,279 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoHighlightDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSearchHitDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTextDto;
+import com.google.common.util.concurrent.Striped;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Lucene index of todo titles and descriptions with English stemming. Writes become searchable within the configured
+ * staleness. The index is rebuilt from the database at startup, so it is opened empty. Users whose todos were changed
+ * in bulk are marked as stale and have to be reindexed before their next search.
+ * <p>
+ * Every document is written by replacing the one with the same id, and the writes of a user are serialized, so that
+ * reindexing a user cannot race with a concurrent write into a duplicate or outdated document. A rebuild overwrites the
+ * documents in place and only then deletes those it has not written, so searches keep finding every todo meanwhile.
+ * Users written during a rebuild may have been overwritten with what the rebuild read before, so they are marked as
+ * stale once it has finished.
+ */
+@Component
+@Slf4j
+public class TodoFullTextIndex implements AutoCloseable {
+    private static final String ID = "id";
+    private static final String USER = "user";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String GENERATION = "generation";
+    private static final int USER_LOCK_STRIPES = 64;
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 2f, DESCRIPTION, 1f);
+    private static final double MIN_STALENESS_SECONDS = 0.025;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final Set<String> staleUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> usersWrittenDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final Striped<Lock> userLocks = Striped.lock(USER_LOCK_STRIPES);
+    private volatile boolean allStale;
+    private volatile boolean rebuilding;
+    private volatile long generation;
+
+    public TodoFullTextIndex(@Value("${todos.full-text.directory:}") String directoryPath,
+                             @Value("${todos.full-text.max-staleness:1s}") Duration maxStaleness) throws IOException {
+        this.directory = directoryPath.isEmpty() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(directoryPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                maxStaleness.toMillis() / 1000.0, MIN_STALENESS_SECONDS);
+        this.reopenThread.setName("todo-full-text-refresh");
+        this.reopenThread.setDaemon(true);
+        this.reopenThread.start();
+    }
+
+    public void put(TodoTextDto todo) {
+        writeUser(todo.login(), () -> writer.updateDocument(idTerm(todo.id()), toDocument(todo, generation)));
+    }
+
+    public void remove(String login, Long id) {
+        writeUser(login, () -> writer.deleteDocuments(idTerm(id)));
+    }
+
+    public void invalidate(String login) {
+        staleUsers.add(login);
+    }
+
+    public void invalidateAll() {
+        allStale = true;
+    }
+
+    public boolean isAllStale() {
+        return allStale;
+    }
+
+    /**
+     * Tells whether the user's todos have to be reindexed before searching.
+     */
+    public boolean isStale(String login) {
+        return allStale || staleUsers.contains(login);
+    }
+
+    public Set<String> getStaleUsers() {
+        return Set.copyOf(staleUsers);
+    }
+
+    public long replaceUser(String login, Stream<TodoTextDto> todos) {
+        return writeUser(login, () -> {
+            staleUsers.remove(login);
+            writer.deleteDocuments(new Term(USER, login));
+            long count = updateAll(todos, generation);
+            searcherManager.maybeRefreshBlocking();
+            return count;
+        });
+    }
+
+    public synchronized long replaceAll(Stream<TodoTextDto> todos) {
+        rebuilding = true;
+        allStale = false;
+        staleUsers.clear();
+        long rebuildGeneration = ++generation;
+        try {
+            long count = updateAll(todos, rebuildGeneration);
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(GENERATION, Long.toString(rebuildGeneration))), BooleanClause.Occur.MUST_NOT)
+                    .build());
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuilding = false;
+            staleUsers.addAll(usersWrittenDuringRebuild);
+            usersWrittenDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * Searches with the simple query syntax, e.g. {@code "buy milk" -bread}. Results of all users are returned when
+     * no login is given.
+     */
+    public Page<TodoSearchHitDto> search(String text, String login, Pageable pageable) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query parsed = parser.parse(text);
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(parsed, BooleanClause.Occur.MUST);
+        if (login != null) {
+            query.add(new TermQuery(new Term(USER, login)), BooleanClause.Occur.FILTER);
+        }
+        Set<Term> terms = new HashSet<>();
+        parsed.visit(QueryVisitor.termCollector(terms));
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int offset = (int) pageable.getOffset();
+                TopScoreDocCollector collector = TopScoreDocCollector.create(offset + pageable.getPageSize(), Integer.MAX_VALUE);
+                searcher.search(query.build(), collector);
+                List<TodoSearchHitDto> hits = new ArrayList<>(pageable.getPageSize());
+                for (ScoreDoc scoreDoc : collector.topDocs(offset, pageable.getPageSize()).scoreDocs) {
+                    Document document = searcher.doc(scoreDoc.doc);
+                    hits.add(new TodoSearchHitDto(Long.valueOf(document.get(ID)), document.get(TITLE),
+                            document.get(DESCRIPTION), scoreDoc.score, highlights(document, terms)));
+                }
+                return new PageImpl<>(hits, pageable, collector.getTotalHits());
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private <T> T writeUser(String login, IndexWrite<T> write) {
+        Lock lock = userLocks.get(login);
+        lock.lock();
+        try {
+            T result = write.run();
+            if (rebuilding) {
+                usersWrittenDuringRebuild.add(login);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long updateAll(Stream<TodoTextDto> todos, long documentGeneration) throws IOException {
+        long count = 0;
+        for (TodoTextDto todo : (Iterable<TodoTextDto>) todos::iterator) {
+            writer.updateDocument(idTerm(todo.id()), toDocument(todo, documentGeneration));
+            count++;
+        }
+        return count;
+    }
+
+    private static Term idTerm(Long id) {
+        return new Term(ID, id.toString());
+    }
+
+    private static Document toDocument(TodoTextDto todo, long documentGeneration) {
+        Document document = new Document();
+        document.add(new StringField(ID, todo.id().toString(), Field.Store.YES));
+        document.add(new StringField(USER, todo.login(), Field.Store.NO));
+        document.add(new StringField(GENERATION, Long.toString(documentGeneration), Field.Store.NO));
+        document.add(new TextField(TITLE, todo.title(), Field.Store.YES));
+        if (todo.description() != null) {
+            document.add(new TextField(DESCRIPTION, todo.description(), Field.Store.YES));
+        }
+        return document;
+    }
+
+    /**
+     * Re-analyzes the stored fields and reports the character offsets of tokens matching any query term.
+     */
+    private List<TodoHighlightDto> highlights(Document document, Set<Term> terms) throws IOException {
+        List<TodoHighlightDto> highlights = new ArrayList<>();
+        for (String field : List.of(TITLE, DESCRIPTION)) {
+            String text = document.get(field);
+            if (text == null) {
+                continue;
+            }
+            try (TokenStream tokens = analyzer.tokenStream(field, text)) {
+                CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+                OffsetAttribute offset = tokens.addAttribute(OffsetAttribute.class);
+                tokens.reset();
+                while (tokens.incrementToken()) {
+                    if (terms.contains(new Term(field, term.toString()))) {
+                        highlights.add(new TodoHighlightDto(field, offset.startOffset(), offset.endOffset()));
+                    }
+                }
+                tokens.end();
+            }
+        }
+        return highlights;
+    }
+
+    @FunctionalInterface
+    private interface IndexWrite<T> {
+        T run() throws IOException;
+    }
+}
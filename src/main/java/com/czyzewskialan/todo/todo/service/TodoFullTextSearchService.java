@@ -0,0 +1,103 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoSearchHitDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTextDto;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
+import static com.czyzewskialan.todo.security.SecurityUtils.isAdminLoggedIn;
+
+/**
+ * Full-text search that reindexes only the users whose todos were changed in bulk, right before their todos are
+ * searched. When the todos of all users were changed in bulk, the index is rebuilt on a background thread. Until it is
+ * done, users get their own todos reindexed before searching, and admins search the index as it was.
+ */
+@Service
+@Slf4j
+public class TodoFullTextSearchService implements AutoCloseable {
+    private static final String REBUILD_THREAD_NAME = "todo-full-text-rebuild";
+
+    private final TodoRepository todoRepository;
+    private final TodoFullTextIndex fullTextIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat(REBUILD_THREAD_NAME).setDaemon(true).build());
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    public TodoFullTextSearchService(TodoRepository todoRepository, TodoFullTextIndex fullTextIndex,
+                                     PlatformTransactionManager transactionManager) {
+        this.todoRepository = todoRepository;
+        this.fullTextIndex = fullTextIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TodoSearchHitDto> search(String query, Pageable pageRequest, Authentication auth) {
+        String login = isAdminLoggedIn(auth) ? null : getLoggedInUsername(auth);
+        if (fullTextIndex.isAllStale()) {
+            scheduleRebuild();
+        }
+        if (login == null) {
+            fullTextIndex.getStaleUsers().forEach(this::reindex);
+        } else if (fullTextIndex.isStale(login)) {
+            reindex(login);
+        }
+        return fullTextIndex.search(query, login, pageRequest);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try (Stream<TodoTextDto> todos = todoRepository.streamTextDtos()) {
+            long count = fullTextIndex.replaceAll(todos);
+            log.info("Full-text index has been rebuilt with {} todos in {} ms.", count, System.currentTimeMillis() - start);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void reindex(String login) {
+        try (Stream<TodoTextDto> todos = todoRepository.streamTextDtosByUserLogin(login)) {
+            fullTextIndex.replaceUser(login, todos);
+        }
+    }
+
+    @Override
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuilds the index on the background thread, unless a rebuild is already waiting for it.
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    readOnlyTransaction.executeWithoutResult(status -> rebuild());
+                } catch (RuntimeException e) {
+                    fullTextIndex.invalidateAll();
+                    log.error("Full-text index could not be rebuilt.", e);
+                }
+            });
+        }
+    }
+}
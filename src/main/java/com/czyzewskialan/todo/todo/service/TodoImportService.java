@@ -0,0 +1,147 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoImportErrorDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoImportResultDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAdd2TodoConverter;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.service.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Imports newline delimited {@link TodoToAddDto} JSON for the logged-in user. The body is parsed line by line and
+ * every batch is persisted in its own transaction, so a bad row or a failed batch does not abort the whole import.
+ * A batch rejected by the database is split in halves until the rows it failed on are found, and only those are
+ * reported.
+ */
+@Service
+@Slf4j
+public class TodoImportService {
+    static final String MESSAGE_ROW_REJECTED = "Row rejected by the database.";
+
+    private final TodoRepository todoRepository;
+    private final UserService userService;
+    private final TodoToAdd2TodoConverter todoToAdd2TodoConverter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public TodoImportService(TodoRepository todoRepository, UserService userService,
+                             TodoToAdd2TodoConverter todoToAdd2TodoConverter, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${todos.import.batch-size:1000}") int batchSize,
+                             @Value("${todos.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.todoRepository = todoRepository;
+        this.userService = userService;
+        this.todoToAdd2TodoConverter = todoToAdd2TodoConverter;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public TodoImportResultDto importTodos(InputStream inputStream, Authentication auth) throws IOException {
+        long start = System.nanoTime();
+        Import result = new Import(auth);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    result.add(lineNumber, line);
+                }
+            }
+        }
+        result.flush();
+
+        long durationMillis = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+        double rowsPerSecond = result.imported * 1000.0 / durationMillis;
+        log.info("{} todos have been imported in {} ms ({} rows/s), {} rows failed.",
+                result.imported, durationMillis, Math.round(rowsPerSecond), result.failed);
+        return new TodoImportResultDto(result.imported, result.failed, durationMillis, rowsPerSecond, result.errors);
+    }
+
+    private class Import {
+        private final Authentication auth;
+        private final List<Row> batch = new ArrayList<>(batchSize);
+        private final List<TodoImportErrorDto> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        Import(Authentication auth) {
+            this.auth = auth;
+        }
+
+        void add(long lineNumber, String line) {
+            TodoToAddDto todoToAdd;
+            try {
+                todoToAdd = objectMapper.readValue(line, TodoToAddDto.class);
+            } catch (JsonProcessingException e) {
+                fail(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                return;
+            }
+            if (isNullOrEmpty(todoToAdd.title())) {
+                fail(lineNumber, "Title is required.");
+                return;
+            }
+            batch.add(new Row(lineNumber, todoToAdd));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            BatchSplitter.write(batch, this::persist, (rows, todos) -> imported += rows.size(), (row, e) -> {
+                log.warn("Todo on line {} could not be imported.", row.line(), e);
+                fail(row.line(), MESSAGE_ROW_REJECTED);
+            });
+            batch.clear();
+        }
+
+        private List<Todo> persist(List<Row> rows) {
+            return transactionTemplate.execute(status -> {
+                User user = userService.getLoggedInUser(auth);
+                List<Todo> todos = rows.stream()
+                        .map(row -> {
+                            Todo todo = todoToAdd2TodoConverter.apply(row.todo());
+                            todo.setUser(user);
+                            return todo;
+                        })
+                        .toList();
+                todoRepository.persistBatch(todos);
+                return todos;
+            });
+        }
+
+        private void fail(long lineNumber, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new TodoImportErrorDto(lineNumber, message));
+            }
+        }
+    }
+
+    private record Row(long line, TodoToAddDto todo) {
+    }
+}
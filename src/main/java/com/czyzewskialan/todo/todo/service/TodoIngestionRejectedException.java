@@ -0,0 +1,8 @@
+package com.czyzewskialan.todo.todo.service;
+
+public class TodoIngestionRejectedException extends RuntimeException {
+
+    public TodoIngestionRejectedException() {
+        super("Too many todos waiting to be written, try again later");
+    }
+}
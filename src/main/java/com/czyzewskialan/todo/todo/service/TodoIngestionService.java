@@ -0,0 +1,204 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTicketDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAdd2TodoConverter;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.service.UserService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Write-behind creation of todos. Validated todos are queued in a bounded ring buffer and a single writer thread
+ * persists whatever has queued up in one transaction, so a burst of creations shares a few commits instead of taking
+ * one each. A full buffer rejects new todos at once with {@link TodoIngestionRejectedException}. A batch rejected by
+ * the database is split in halves until only the rejected todos are left, and only their tickets fail.
+ * <p>
+ * Every queued todo gets a ticket whose status can be polled until it expires, or until it is evicted to keep the
+ * number of tickets bounded. A durable submission waits until its batch has committed, or until the timeout, after
+ * which it is answered as still pending.
+ */
+@Service
+@Slf4j
+public class TodoIngestionService implements AutoCloseable {
+    static final String METRIC_NAME = "todos.ingestion";
+    static final String MESSAGE_TODO_REJECTED = "Todo rejected by the database.";
+    static final String MESSAGE_TODO_NOT_WRITTEN = "Todo could not be written.";
+    private static final String WRITER_NAME = "todo-ingestion-writer";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final TodoRepository todoRepository;
+    private final UserService userService;
+    private final TodoToAdd2TodoConverter todoToAdd2TodoConverter;
+    private final TransactionTemplate transactionTemplate;
+    private final RingBuffer<Pending> buffer;
+    private final Cache<String, Pending> tickets;
+    private final int batchSize;
+    private final Duration durableTimeout;
+    private final Counter rejections;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TodoIngestionService(TodoRepository todoRepository, UserService userService,
+                                TodoToAdd2TodoConverter todoToAdd2TodoConverter,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${todos.ingestion.buffer-capacity:8192}") int bufferCapacity,
+                                @Value("${todos.ingestion.batch-size:500}") int batchSize,
+                                @Value("${todos.ingestion.durable-timeout:5s}") Duration durableTimeout,
+                                @Value("${todos.ingestion.ticket-ttl:10m}") Duration ticketTtl,
+                                @Value("${todos.ingestion.maximum-tickets:100000}") long maximumTickets,
+                                MeterRegistry meterRegistry) {
+        this.todoRepository = todoRepository;
+        this.userService = userService;
+        this.todoToAdd2TodoConverter = todoToAdd2TodoConverter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new RingBuffer<>(bufferCapacity);
+        this.tickets = CacheBuilder.newBuilder()
+                .maximumSize(maximumTickets)
+                .expireAfterWrite(ticketTtl)
+                .build();
+        this.batchSize = batchSize;
+        this.durableTimeout = durableTimeout;
+        Gauge.builder(METRIC_NAME + ".queued", buffer, RingBuffer::size).register(meterRegistry);
+        this.rejections = Counter.builder(METRIC_NAME + ".rejected").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(METRIC_NAME + ".batch-size").register(meterRegistry);
+        this.writer = new Thread(this::write, WRITER_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the todo for the writer thread. Unless durable, returns a pending ticket right away.
+     */
+    public TodoTicketDto submit(TodoToAddDto todoToAdd, boolean durable, Authentication auth) {
+        if (isNullOrEmpty(todoToAdd.title())) {
+            throw new InvalidTodoRequestException("Title is required.");
+        }
+        Pending pending = new Pending(UUID.randomUUID().toString(), getLoggedInUsername(auth), auth, todoToAdd,
+                new CompletableFuture<>());
+        tickets.put(pending.ticket(), pending);
+        if (!buffer.offer(pending)) {
+            tickets.invalidate(pending.ticket());
+            rejections.increment();
+            throw new TodoIngestionRejectedException();
+        }
+        LockSupport.unpark(writer);
+        if (!durable) {
+            return pending.status();
+        }
+        try {
+            return pending.result().get(durableTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return pending.status();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return pending.status();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the status of the user's ticket. Tickets of other users are reported as not found.
+     */
+    public TodoTicketDto getTicket(String ticket, Authentication auth) throws EntityNotFoundException {
+        Pending pending = tickets.getIfPresent(ticket);
+        if (pending == null || !pending.login().equals(getLoggedInUsername(auth))) {
+            throw new EntityNotFoundException(ticket);
+        }
+        return pending.status();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(durableTimeout.toMillis());
+    }
+
+    private void write() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                BatchSplitter.write(batch, this::persist, this::written, (pending, e) -> {
+                    log.warn("Queued todo {} could not be written.", pending.ticket(), e);
+                    pending.complete(null, MESSAGE_TODO_REJECTED);
+                });
+            } catch (RuntimeException e) {
+                log.error("Batch of {} queued todos could not be written.", batch.size(), e);
+                batch.forEach(pending -> pending.complete(null, MESSAGE_TODO_NOT_WRITTEN));
+            }
+            batch.clear();
+        }
+    }
+
+    private List<Todo> persist(List<Pending> batch) {
+        return transactionTemplate.execute(status -> {
+            Map<String, User> users = new HashMap<>();
+            List<Todo> todos = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                Todo todo = todoToAdd2TodoConverter.apply(pending.todo());
+                todo.setUser(users.computeIfAbsent(pending.login(),
+                        login -> userService.getLoggedInUser(pending.auth())));
+                todos.add(todo);
+            }
+            todoRepository.persistBatch(todos);
+            return todos;
+        });
+    }
+
+    private void written(List<Pending> batch, List<Todo> todos) {
+        batchSizes.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(todos.get(i).getId(), null);
+        }
+        log.debug("Batch of {} queued todos has been written.", batch.size());
+    }
+
+    private record Pending(String ticket, String login, Authentication auth, TodoToAddDto todo,
+                           CompletableFuture<TodoTicketDto> result) {
+
+        TodoTicketDto status() {
+            return result.getNow(new TodoTicketDto(ticket, TodoTicketDto.Status.PENDING, null, null));
+        }
+
+        void complete(Long id, String error) {
+            result.complete(error == null
+                    ? new TodoTicketDto(ticket, TodoTicketDto.Status.CREATED, id, null)
+                    : new TodoTicketDto(ticket, TodoTicketDto.Status.FAILED, null, error));
+        }
+    }
+}
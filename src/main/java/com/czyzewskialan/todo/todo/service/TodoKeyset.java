@@ -0,0 +1,111 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.domain.Todo;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Path;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Position in a listing ordered by a single sort key with the id as a tie-breaker. The next slice starts right after
+ * the last seen (key, id) pair, so deep slices cost the same as the first one, unlike OFFSET based pages.
+ */
+record TodoKeyset(Key key, Sort.Direction direction, Comparable<?> value, Long id) {
+    private static final String SEPARATOR = ",";
+
+    static TodoKeyset first(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty()) {
+            return new TodoKeyset(Key.ID, Sort.Direction.ASC, null, null);
+        }
+        if (orders.size() > 1) {
+            throw new InvalidCursorException("Only one sort property is supported.");
+        }
+        Sort.Order order = orders.get(0);
+        return new TodoKeyset(Key.of(order.getProperty()), order.getDirection(), null, null);
+    }
+
+    static TodoKeyset decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 4);
+            Key key = Key.of(parts[0]);
+            return new TodoKeyset(key, Sort.Direction.fromString(parts[1]), key.parser.apply(parts[3]),
+                    Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor.");
+        }
+    }
+
+    String encode() {
+        String raw = String.join(SEPARATOR, key.property, direction.name(), id.toString(), value.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String nextCursor(Slice<Todo> slice) {
+        if (!slice.hasNext()) {
+            return null;
+        }
+        Todo last = slice.getContent().get(slice.getNumberOfElements() - 1);
+        return new TodoKeyset(key, direction, key.getter.apply(last), last.getId()).encode();
+    }
+
+    Sort sort() {
+        Sort sort = Sort.by(direction, key.property);
+        return key == Key.ID ? sort : sort.and(Sort.by(direction, Key.ID.property));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Specification<Todo> toSpecification() {
+        if (isNull(id)) {
+            return null;
+        }
+        return (root, query, builder) -> {
+            Path<Comparable> keyPath = root.get(key.property);
+            Path<Long> idPath = root.get(Key.ID.property);
+            Comparable keyValue = value;
+            if (key == Key.ID) {
+                return direction.isAscending() ? builder.greaterThan(idPath, id) : builder.lessThan(idPath, id);
+            }
+            return direction.isAscending()
+                    ? builder.or(builder.greaterThan(keyPath, keyValue),
+                    builder.and(builder.equal(keyPath, keyValue), builder.greaterThan(idPath, id)))
+                    : builder.or(builder.lessThan(keyPath, keyValue),
+                    builder.and(builder.equal(keyPath, keyValue), builder.lessThan(idPath, id)));
+        };
+    }
+
+    enum Key {
+        ID("id", Todo::getId, Long::valueOf),
+        TITLE("title", Todo::getTitle, title -> title),
+        DATE_CREATED("dateCreated", Todo::getDateCreated, LocalDateTime::parse),
+        DATE_UPDATED("dateUpdated", Todo::getDateUpdated, LocalDateTime::parse);
+
+        private final String property;
+        private final Function<Todo, Comparable<?>> getter;
+        private final Function<String, Comparable<?>> parser;
+
+        Key(String property, Function<Todo, Comparable<?>> getter, Function<String, Comparable<?>> parser) {
+            this.property = property;
+            this.getter = getter;
+            this.parser = parser;
+        }
+
+        static Key of(String property) {
+            return Arrays.stream(values())
+                    .filter(key -> key.property.equals(property))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidCursorException(
+                            String.format("Sorting by \"%s\" is not supported.", property)));
+        }
+    }
+}
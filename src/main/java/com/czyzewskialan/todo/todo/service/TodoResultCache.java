@@ -0,0 +1,113 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import static com.czyzewskialan.todo.utils.TransactionUtils.afterCommit;
+
+/**
+ * Listing and search results keyed by the versions of the data they were read from. A user's results are keyed by
+ * the user's version and admin results by the global version, so a write makes them unreachable by bumping a counter
+ * and the old entries are left to the size based eviction.
+ * <p>
+ * Versions are read before the query runs and bumped after the write commits, so a result read from older data can
+ * only be stored under a version that is no longer current.
+ * <p>
+ * User versions live in a fixed number of stripes, so users sharing a stripe also reload each other's results after
+ * a write, but the versions take the same memory however many users there are.
+ */
+@Component
+public class TodoResultCache {
+    static final String CACHE_NAME = "todos.result-cache";
+    private static final int USER_VERSION_STRIPES = 1024;
+
+    private final Cache<Key, Object> results;
+    private final AtomicLongArray userVersions = new AtomicLongArray(USER_VERSION_STRIPES);
+    private final AtomicLong allUsersVersion = new AtomicLong();
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public TodoResultCache(@Value("${todos.result-cache.maximum-size:10000}") long maximumSize,
+                           MeterRegistry meterRegistry) {
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached result of the query for the user, or for all users when no login is given, loading it if
+     * the data changed since it was cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String login, List<Object> query, Supplier<T> loader) {
+        Key key = key(login, query);
+        try {
+            return (T) results.get(key, loader::get);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns a tag that changes whenever the cached result of the query may change, usable as an ETag without
+     * running the query. Versions start over on restart, so the tag includes an id of this instance.
+     */
+    public String tag(String login, List<Object> query) {
+        return Hashing.murmur3_128()
+                .hashString(instanceId + key(login, query), StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    public void invalidate(String login) {
+        userVersions.incrementAndGet(stripe(login));
+        globalVersion.incrementAndGet();
+    }
+
+    /**
+     * Cached todos include their owner's role, so the owner's results and the admin results are reloaded once the
+     * change of the user is committed.
+     */
+    @EventListener
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        afterCommit(() -> invalidate(event.login()));
+    }
+
+    public void invalidateAll() {
+        allUsersVersion.incrementAndGet();
+        globalVersion.incrementAndGet();
+    }
+
+    private Key key(String login, List<Object> query) {
+        return login == null
+                ? new Key(null, globalVersion.get(), 0, query)
+                : new Key(login, userVersions.get(stripe(login)), allUsersVersion.get(), query);
+    }
+
+    private static int stripe(String login) {
+        return login.hashCode() & (USER_VERSION_STRIPES - 1);
+    }
+
+    private record Key(String login, long version, long allUsersVersion, List<Object> query) {
+    }
+}
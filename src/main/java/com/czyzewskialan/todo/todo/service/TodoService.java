@@ -2,75 +2,196 @@ package com.czyzewskialan.todo.todo.service;
 
 import com.czyzewskialan.todo.todo.controller.dto.Todo2TodoDtoConverter;
 import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoOperationDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoResultDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSliceDto;
 import com.czyzewskialan.todo.todo.controller.dto.TodoToAdd2TodoConverter;
 import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
 import com.czyzewskialan.todo.todo.domain.Todo;
 import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.domain.User;
 import com.czyzewskialan.todo.user.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
 import static com.czyzewskialan.todo.security.SecurityUtils.hasAccessToTodo;
 import static com.czyzewskialan.todo.security.SecurityUtils.isAdminLoggedIn;
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.hasId;
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.hasVersion;
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.ownedBy;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.data.jpa.domain.Specification.where;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TodoService {
+    static final int MAX_BATCH_OPERATIONS = 1000;
 
     private final TodoRepository todoRepository;
     private final UserService userService;
     private final Todo2TodoDtoConverter todo2TodoDtoConverter;
     private final TodoToAdd2TodoConverter todoToAdd2TodoConverter;
+    private final TodoResultCache resultCache;
+    private final TodoBulkChanges bulkChanges;
 
     public Page<TodoDto> findAll(Pageable pageRequest, Authentication auth) {
-        if (isAdminLoggedIn(auth)) {
-            return todoRepository.findAll(pageRequest)
-                    .map(todo2TodoDtoConverter);
-        }
-        User user = userService.getLoggedInUser(auth);
-        return todoRepository.findByUser(user, pageRequest)
-                .map(todo2TodoDtoConverter);
+        return resultCache.get(getCacheScope(auth), List.of("findAll", pageRequest),
+                () -> todoRepository.findAllDtos(getSpecificationOwner(auth), pageRequest));
+    }
+
+    public Slice<TodoDto> findSlice(Pageable pageRequest, Authentication auth) {
+        return resultCache.get(getCacheScope(auth), List.of("findSlice", pageRequest),
+                () -> todoRepository.findDtoSlice(getSpecificationOwner(auth), pageRequest));
+    }
+
+    /**
+     * Returns the ETag of {@link #findAll} or {@link #findSlice} results without running the query.
+     */
+    public String getETag(Pageable pageRequest, boolean count, Authentication auth) {
+        return resultCache.tag(getCacheScope(auth), List.of(count ? "findAll" : "findSlice", pageRequest));
+    }
+
+    public TodoSliceDto scroll(Pageable pageRequest, String cursor, Authentication auth) {
+        TodoKeyset keyset = isNull(cursor) ? TodoKeyset.first(pageRequest.getSort()) : TodoKeyset.decode(cursor);
+        Slice<Todo> slice = todoRepository.findSlice(where(getSpecificationOwner(auth)).and(keyset.toSpecification()),
+                PageRequest.of(0, pageRequest.getPageSize(), keyset.sort()));
+        return new TodoSliceDto(slice.map(todo2TodoDtoConverter).getContent(), slice.hasNext(), keyset.nextCursor(slice));
+    }
+
+    private Specification<Todo> getSpecificationOwner(Authentication auth) {
+        return isAdminLoggedIn(auth) ? null : ownedBy(getLoggedInUsername(auth));
+    }
+
+    /**
+     * Matches the todo only if the user may access it, so that a single statement both authorizes and acts.
+     */
+    private Specification<Todo> getSpecificationAccessible(Long id, Authentication auth) {
+        return where(hasId(id)).and(getSpecificationOwner(auth));
+    }
+
+    /**
+     * Returns the login of the todo's owner, which is the logged-in user unless an admin is logged in, so that changes
+     * of a single todo invalidate only what its owner has cached.
+     */
+    private String getOwner(Long id, Authentication auth) throws EntityNotFoundException {
+        return isAdminLoggedIn(auth)
+                ? todoRepository.findUserLoginById(id).orElseThrow(EntityNotFoundException::new)
+                : getLoggedInUsername(auth);
     }
 
+    private static String getCacheScope(Authentication auth) {
+        return isAdminLoggedIn(auth) ? null : getLoggedInUsername(auth);
+    }
+
+    @Transactional
     public TodoDto create(TodoToAddDto todoToAdd, Authentication auth) {
         Todo todo = todoToAdd2TodoConverter.apply(todoToAdd);
         User user = userService.getLoggedInUser(auth);
         todo.setUser(user);
         Todo savedTodo = todoRepository.save(todo);
         log.info("Todo {} has been created.", savedTodo);
-        return todo2TodoDtoConverter.apply(savedTodo);
+        return todo2TodoDtoConverter.apply(savedTodo, userService.getLoggedInUserDto(auth));
     }
 
     public TodoDto getOne(Long id, Authentication auth) throws EntityNotFoundException {
-        Todo todo = todoRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-        if (hasAccessToTodo(auth, todo)) {
-            return todo2TodoDtoConverter.apply(todo);
-        } else {
-            throw new EntityNotFoundException();
-        }
+        return todoRepository.findDto(getSpecificationAccessible(id, auth)).orElseThrow(EntityNotFoundException::new);
+    }
+
+    /**
+     * Reads only the version of the todo, which is enough to revalidate a cached copy of it.
+     */
+    public Long getVersion(Long id, Authentication auth) throws EntityNotFoundException {
+        Optional<Long> version = isAdminLoggedIn(auth)
+                ? todoRepository.findVersionById(id)
+                : todoRepository.findVersionByIdAndUserLogin(id, getLoggedInUsername(auth));
+        return version.orElseThrow(EntityNotFoundException::new);
     }
 
+    @Transactional
     public TodoDto update(TodoToAddDto todoToUpdate, Long todoId, Authentication auth) {
-        Optional<Todo> foundTodo = todoRepository.findById(todoId);
-        if (foundTodo.isPresent() && hasAccessToTodo(auth, foundTodo.get())) {
+        return update(todoToUpdate, todoId, null, auth);
+    }
+
+    /**
+     * Updates the todo only if it still has the expected version, unless no version is expected. The version is
+     * checked again by the update statement, so concurrent writes are detected as well. A missing todo is created
+     * only when no version is expected, so {@link ExpectedVersion#ANY} requires the todo to exist.
+     */
+    @Transactional
+    public TodoDto update(TodoToAddDto todoToUpdate, Long todoId, ExpectedVersion expectedVersion,
+                          Authentication auth) {
+        Optional<Todo> foundTodo = todoRepository.findOne(getSpecificationAccessible(todoId, auth));
+        if (foundTodo.isPresent()) {
+            if (isVersioned(expectedVersion) && !expectedVersion.version().equals(foundTodo.get().getVersion())) {
+                throw new OptimisticLockingFailureException(String.format("Todo %d has been modified.", todoId));
+            }
             Todo todoToSave = updateTodo(foundTodo.get(), todoToUpdate);
             Todo savedTodo = todoRepository.save(todoToSave);
+            todoRepository.flush();
             log.info("Todo {} has been updated.", savedTodo);
             return todo2TodoDtoConverter.apply(savedTodo);
+        } else if (expectedVersion != null) {
+            throw new OptimisticLockingFailureException(String.format("Todo %d does not exist.", todoId));
         } else {
             return create(todoToUpdate, auth);
         }
     }
 
+    /**
+     * Updates the non-null fields with a single statement, without loading the todo. Returns the new version when a
+     * version is expected, as it is only known then.
+     */
+    @Transactional
+    public Long patch(TodoToAddDto patch, Long todoId, ExpectedVersion expectedVersion, Authentication auth) {
+        Map<String, Object> values = TodoBulkChanges.toValues(patch);
+        Specification<Todo> specification = getSpecificationAccessible(todoId, auth);
+        int updated = todoRepository.bulkUpdate(isVersioned(expectedVersion)
+                ? specification.and(hasVersion(expectedVersion.version())) : specification, values);
+        if (updated == 0) {
+            if (isVersioned(expectedVersion)) {
+                getVersion(todoId, auth);
+                throw new OptimisticLockingFailureException(String.format("Todo %d has been modified.", todoId));
+            } else if (nonNull(expectedVersion)) {
+                throw new OptimisticLockingFailureException(String.format("Todo %d does not exist.", todoId));
+            }
+            throw new EntityNotFoundException();
+        }
+        bulkChanges.updated(getOwner(todoId, auth), values);
+        log.info("Todo {} has been patched.", todoId);
+        return isVersioned(expectedVersion) ? expectedVersion.version() + 1 : null;
+    }
+
+    private static boolean isVersioned(ExpectedVersion expectedVersion) {
+        return nonNull(expectedVersion) && !expectedVersion.isAny();
+    }
+
     private Todo updateTodo(Todo todo, TodoToAddDto update) {
         if (update.title() != null) {
             todo.setTitle(update.title());
@@ -87,14 +208,106 @@ public class TodoService {
         return todo;
     }
 
+    public List<TodoResultDto> getMany(Collection<Long> ids, Authentication auth) {
+        if (ids.size() > MAX_BATCH_OPERATIONS) {
+            throw new InvalidTodoRequestException(
+                    String.format("At most %d todos can be requested at once.", MAX_BATCH_OPERATIONS));
+        }
+        Map<Long, Todo> todos = findAccessible(ids, auth);
+        return new LinkedHashSet<>(ids).stream()
+                .map(id -> todos.containsKey(id)
+                        ? new TodoResultDto(id, HttpStatus.OK.value(), todo2TodoDtoConverter.apply(todos.get(id)), null)
+                        : notFound(id))
+                .toList();
+    }
+
+    @Transactional
+    public List<TodoResultDto> batch(List<TodoOperationDto> operations, Authentication auth) {
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new InvalidTodoRequestException(
+                    String.format("At most %d operations can be sent in one batch.", MAX_BATCH_OPERATIONS));
+        }
+        Map<Long, Todo> todos = findAccessible(operations.stream()
+                .map(TodoOperationDto::id)
+                .filter(Objects::nonNull)
+                .toList(), auth);
+        User user = userService.getLoggedInUser(auth);
+        UserDto userDto = userService.getLoggedInUserDto(auth);
+        List<Supplier<TodoResultDto>> results = new ArrayList<>(operations.size());
+        for (TodoOperationDto operation : operations) {
+            results.add(execute(operation, todos, user, userDto));
+        }
+        todoRepository.flush();
+        log.info("Batch of {} todo operations has been executed.", operations.size());
+        return results.stream()
+                .map(Supplier::get)
+                .toList();
+    }
+
+    private Map<Long, Todo> findAccessible(Collection<Long> ids, Authentication auth) {
+        return todoRepository.findAllById(new LinkedHashSet<>(ids)).stream()
+                .filter(todo -> hasAccessToTodo(auth, todo))
+                .collect(Collectors.toMap(Todo::getId, Function.identity()));
+    }
+
+    /**
+     * Returns the result lazily, so that it reflects the state after the batch has been flushed.
+     */
+    private Supplier<TodoResultDto> execute(TodoOperationDto operation, Map<Long, Todo> todos, User user,
+                                            UserDto userDto) {
+        if (operation.type() == null) {
+            return () -> badRequest(operation.id(), "Operation type is required.");
+        }
+        Todo todo = operation.id() != null ? todos.get(operation.id()) : null;
+        return switch (operation.type()) {
+            case DELETE -> {
+                if (todo == null) {
+                    yield () -> notFound(operation.id());
+                }
+                todoRepository.delete(todo);
+                todos.remove(todo.getId());
+                yield () -> new TodoResultDto(todo.getId(), HttpStatus.OK.value(), null, null);
+            }
+            case UPDATE -> {
+                if (operation.todo() == null) {
+                    yield () -> badRequest(operation.id(), "Todo is required.");
+                }
+                if (todo == null) {
+                    yield createInBatch(operation, user, userDto);
+                }
+                updateTodo(todo, operation.todo());
+                yield () -> new TodoResultDto(todo.getId(), HttpStatus.OK.value(), todo2TodoDtoConverter.apply(todo), null);
+            }
+            case CREATE -> createInBatch(operation, user, userDto);
+        };
+    }
+
+    private Supplier<TodoResultDto> createInBatch(TodoOperationDto operation, User user, UserDto userDto) {
+        if (operation.todo() == null || isNullOrEmpty(operation.todo().title())) {
+            return () -> badRequest(operation.id(), "Title is required.");
+        }
+        Todo todo = todoToAdd2TodoConverter.apply(operation.todo());
+        todo.setUser(user);
+        Todo savedTodo = todoRepository.save(todo);
+        return () -> new TodoResultDto(savedTodo.getId(), HttpStatus.CREATED.value(),
+                todo2TodoDtoConverter.apply(savedTodo, userDto), null);
+    }
+
+    private static TodoResultDto badRequest(Long id, String error) {
+        return new TodoResultDto(id, HttpStatus.BAD_REQUEST.value(), null, error);
+    }
+
+    private static TodoResultDto notFound(Long id) {
+        return new TodoResultDto(id, HttpStatus.NOT_FOUND.value(), null, "Todo not found");
+    }
+
+    @Transactional
     public void delete(Long id, Authentication auth) {
-        Todo todo = todoRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-        if (hasAccessToTodo(auth, todo)) {
-            todoRepository.deleteById(id);
-            log.info("Todo {} has been removed from the database.", todo);
-        } else {
+        String owner = getOwner(id, auth);
+        if (todoRepository.bulkDelete(getSpecificationAccessible(id, auth)) == 0) {
             throw new EntityNotFoundException();
         }
+        bulkChanges.deleted(owner, id);
+        log.info("Todo {} has been removed from the database.", id);
     }
 }
-
@@ -0,0 +1,75 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.event.TodoStatsCountedEvent;
+import com.czyzewskialan.todo.todo.persistance.TodoStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
+
+@Service
+@Slf4j
+public class TodoStatsService {
+    static final String DRIFT_METER_NAME = "todos.stats.drift";
+
+    private final TodoStatsRepository statsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter driftCounter;
+
+    public TodoStatsService(TodoStatsRepository statsRepository, ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this.statsRepository = statsRepository;
+        this.eventPublisher = eventPublisher;
+        this.driftCounter = Counter.builder(DRIFT_METER_NAME)
+                .description("Users whose todo statistics differed from their todos")
+                .register(meterRegistry);
+    }
+
+    public TodoStatsDto getStats(Authentication auth) {
+        String login = getLoggedInUsername(auth);
+        return statsRepository.findByLogin(login)
+                .orElseGet(() -> statsRepository.recount(login).current());
+    }
+
+    /**
+     * Counts the todos of all users in one pass and recounts the users whose statistics differ. A difference seen
+     * without the lock may come from a write in progress, so only the users whose locked statistics still differ
+     * are reported as drifted. Returns the number of such users, and publishes the counts of all todos.
+     */
+    @Scheduled(initialDelayString = "${todos.stats.reconciliation-interval:PT1H}",
+            fixedDelayString = "${todos.stats.reconciliation-interval:PT1H}")
+    public int reconcile() {
+        Map<String, TodoStatsDto> stored = statsRepository.findAll();
+        Map<String, TodoStatsDto> counted = statsRepository.countAll();
+        Set<String> logins = new HashSet<>(stored.keySet());
+        logins.addAll(counted.keySet());
+        int drifted = 0;
+        for (String login : logins) {
+            if (Objects.equals(stored.get(login), counted.getOrDefault(login, TodoStatsDto.EMPTY))) {
+                continue;
+            }
+            TodoStatsRepository.Recount recount = statsRepository.recount(login);
+            if (recount.previous() != null && !recount.previous().equals(recount.current())) {
+                log.warn("Todo statistics of user {} have drifted from {} to {}.", login, recount.previous(),
+                        recount.current());
+                drifted++;
+            }
+        }
+        driftCounter.increment(drifted);
+        eventPublisher.publishEvent(new TodoStatsCountedEvent(counted.values().stream()
+                .reduce(TodoStatsDto.EMPTY, TodoStatsDto::plus)));
+        log.info("Todo statistics of {} users have been reconciled, {} have drifted.", logins.size(), drifted);
+        return drifted;
+    }
+}
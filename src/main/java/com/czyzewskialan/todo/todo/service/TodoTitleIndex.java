@@ -0,0 +1,140 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Sorted titles of recently active users for prefix lookups. A user's titles are loaded on first use and kept up to
+ * date by todo writes. The total number of titles held is bounded, counted when a user's titles are loaded.
+ * <p>
+ * A write counts in the version of the user's stripe before it changes the titles. Titles whose loading saw the
+ * version change may miss the write, so they are served once and then dropped, to be loaded again on next use.
+ */
+@Component
+public class TodoTitleIndex {
+    private static final char ID_SEPARATOR = '\0';
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Cache<String, UserTitles> users;
+    private final AtomicLongArray writeVersions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TodoTitleIndex(@Value("${todos.title-index.maximum-titles:1000000}") long maximumTitles,
+                          @Value("${todos.title-index.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.users = CacheBuilder.newBuilder()
+                .maximumWeight(maximumTitles)
+                .weigher((String login, UserTitles titles) -> Math.max(titles.size(), 1))
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    public List<TodoTitleDto> find(String login, String prefix, int limit, Supplier<List<TodoTitleDto>> loader) {
+        long version = writeVersion(login);
+        AtomicBoolean loaded = new AtomicBoolean();
+        try {
+            UserTitles titles = users.get(login, () -> {
+                loaded.set(true);
+                return new UserTitles(loader.get());
+            });
+            if (loaded.get() && writeVersion(login) != version) {
+                users.asMap().remove(login, titles);
+            }
+            return titles.find(prefix, limit);
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    public void put(String login, Long id, String title) {
+        countWrite(login);
+        UserTitles titles = users.getIfPresent(login);
+        if (titles != null) {
+            titles.put(id, title);
+        }
+    }
+
+    public void remove(String login, Long id) {
+        countWrite(login);
+        UserTitles titles = users.getIfPresent(login);
+        if (titles != null) {
+            titles.remove(id);
+        }
+    }
+
+    public void invalidate(String login) {
+        countWrite(login);
+        users.invalidate(login);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        users.invalidateAll();
+    }
+
+    private void countWrite(String login) {
+        writeVersions.incrementAndGet(stripe(login));
+    }
+
+    private long writeVersion(String login) {
+        return writeVersions.get(stripe(login)) + invalidations.get();
+    }
+
+    private static int stripe(String login) {
+        return Math.floorMod(login.hashCode(), VERSION_STRIPES);
+    }
+
+    private static String normalize(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    private static class UserTitles {
+        private final NavigableMap<String, TodoTitleDto> titlesByKey = new TreeMap<>();
+        private final Map<Long, String> keysById = new HashMap<>();
+
+        UserTitles(List<TodoTitleDto> titles) {
+            titles.forEach(title -> put(title.id(), title.title()));
+        }
+
+        synchronized int size() {
+            return keysById.size();
+        }
+
+        synchronized void put(Long id, String title) {
+            remove(id);
+            String key = normalize(title) + ID_SEPARATOR + id;
+            titlesByKey.put(key, new TodoTitleDto(id, title));
+            keysById.put(id, key);
+        }
+
+        synchronized void remove(Long id) {
+            String key = keysById.remove(id);
+            if (key != null) {
+                titlesByKey.remove(key);
+            }
+        }
+
+        synchronized List<TodoTitleDto> find(String prefix, int limit) {
+            String from = normalize(prefix);
+            return titlesByKey.subMap(from, true, from + Character.MAX_VALUE, false).values().stream()
+                    .limit(limit)
+                    .toList();
+        }
+    }
+}
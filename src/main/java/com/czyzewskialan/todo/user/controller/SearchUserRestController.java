@@ -4,8 +4,8 @@ import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.domain.User;
 import com.czyzewskialan.todo.user.service.SearchUserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -19,7 +19,9 @@ public class SearchUserRestController {
     private final SearchUserService searchService;
 
     @GetMapping
-    public Page<UserDto> find(@RequestParam(value = "role", required = false) User.Role role, Pageable pageable) {
-        return searchService.find(role, pageable);
+    public Slice<UserDto> find(@RequestParam(value = "role", required = false) User.Role role,
+                               @RequestParam(value = "count", defaultValue = "true") boolean count,
+                               Pageable pageable) {
+        return count ? searchService.find(role, pageable) : searchService.findSlice(role, pageable);
     }
 }
@@ -0,0 +1,21 @@
+package com.czyzewskialan.todo.user.controller;
+
+import com.czyzewskialan.todo.user.controller.dto.UserAnalyticsDto;
+import com.czyzewskialan.todo.user.service.UserAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/analytics/users")
+@RequiredArgsConstructor
+public class UserAnalyticsController {
+
+    private final UserAnalyticsService analyticsService;
+
+    @GetMapping
+    public UserAnalyticsDto getAnalytics() {
+        return analyticsService.getAnalytics();
+    }
+}
@@ -1,19 +1,25 @@
 package com.czyzewskialan.todo.user.controller;
 
+import com.czyzewskialan.todo.security.crypto.PasswordHashingRejectedException;
 import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.controller.dto.UserToAddDto;
 import com.czyzewskialan.todo.user.domain.User;
 import com.czyzewskialan.todo.user.service.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @RestController
 @RequestMapping("/users")
@@ -22,13 +28,19 @@ public class UserController {
     private final UserService userService;
 
     @GetMapping
-    public Page<UserDto> getAll(Pageable pageRequest) {
-        return userService.findAll(pageRequest);
+    public Slice<UserDto> getAll(@RequestParam(value = "count", defaultValue = "true") boolean count,
+                                 Pageable pageRequest) {
+        return count ? userService.findAll(pageRequest) : userService.findSlice(pageRequest);
     }
 
     @GetMapping("/{login}")
-    public UserDto getOne(@PathVariable("login") String login) {
-        return userService.findOne(login);
+    public ResponseEntity<UserDto> getOne(@PathVariable("login") String login, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(eTag(userService.getDateUpdated(login)))) {
+            return null;
+        }
+        UserDto user = userService.findOne(login);
+        return ResponseEntity.ok().eTag(eTag(user.dateUpdated())).body(user);
     }
 
     @PostMapping
@@ -69,4 +81,17 @@ public class UserController {
     public String entityNotFoundHandler(EntityNotFoundException e) {
         return String.format("User \"%s\" not found.", e.getMessage());
     }
+
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public String passwordHashingRejectedHandler(PasswordHashingRejectedException e) {
+        return e.getMessage();
+    }
+
+    /**
+     * Truncated to the precision the database keeps, so that the tag does not change once the user is reloaded.
+     */
+    private static String eTag(LocalDateTime dateUpdated) {
+        return dateUpdated.truncatedTo(ChronoUnit.MICROS).toString();
+    }
 }
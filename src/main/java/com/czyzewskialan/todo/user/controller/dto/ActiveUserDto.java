@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.user.controller.dto;
+
+public record ActiveUserDto(String login, long changes) {
+}
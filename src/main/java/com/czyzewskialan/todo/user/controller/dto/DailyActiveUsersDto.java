@@ -0,0 +1,6 @@
+package com.czyzewskialan.todo.user.controller.dto;
+
+import java.time.LocalDate;
+
+public record DailyActiveUsersDto(LocalDate day, long activeUsers) {
+}
@@ -0,0 +1,23 @@
+package com.czyzewskialan.todo.user.controller.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global numbers kept up to date from the stream of changes. The user and todo counts are exact apart from changes
+ * made by bulk statements since the last reconciliation of the todo statistics. The active users are estimates with
+ * the given relative standard error, and the change counts of the most active users may be overestimated by up to
+ * the given number of changes with the given probability. Unlike the active users, the change counts are not windowed:
+ * they cover every change since the application started and never decay.
+ */
+public record UserAnalyticsDto(long users,
+                               long todos,
+                               double completionRatio,
+                               Map<String, Long> priorities,
+                               List<DailyActiveUsersDto> dailyActiveUsers,
+                               long activeUsers,
+                               double activeUsersStandardError,
+                               List<ActiveUserDto> mostActiveUsers,
+                               long mostActiveUsersMaxOverestimate,
+                               double mostActiveUsersConfidence) {
+}
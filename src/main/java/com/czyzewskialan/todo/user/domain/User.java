@@ -1,6 +1,7 @@
 package com.czyzewskialan.todo.user.domain;
 
 import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.user.persistance.UserEntityListener;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -15,6 +16,7 @@ import java.util.List;
 @NoArgsConstructor
 @Builder(toBuilder = true)
 @Entity
+@EntityListeners(UserEntityListener.class)
 @Table(name = "USERS")
 public class User {
     public static final User.Role DEFAULT_ROLE = User.Role.USER;
@@ -0,0 +1,4 @@
+package com.czyzewskialan.todo.user.event;
+
+public record UserCreatedEvent(String login) {
+}
@@ -0,0 +1,33 @@
+package com.czyzewskialan.todo.user.persistance;
+
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.event.UserCreatedEvent;
+import com.czyzewskialan.todo.user.event.UserDeletedEvent;
+import com.czyzewskialan.todo.user.service.LoginFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+
+import static com.czyzewskialan.todo.utils.TransactionUtils.afterCommit;
+
+@RequiredArgsConstructor
+public class UserEntityListener {
+
+    private final LoginFilter loginFilter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    void postPersist(User user) {
+        String login = user.getLogin();
+        loginFilter.add(login);
+        afterCommit(() -> eventPublisher.publishEvent(new UserCreatedEvent(login)));
+    }
+
+    @PostRemove
+    void postRemove(User user) {
+        String login = user.getLogin();
+        afterCommit(() -> eventPublisher.publishEvent(new UserDeletedEvent(login)));
+    }
+}
@@ -1,10 +1,43 @@
 package com.czyzewskialan.todo.user.persistance;
 
+import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.domain.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends JpaRepository<User, String> {
-    Page<User> findByRole(User.Role role, Pageable pageable);
+    String SELECT_USER_DTO = "select new com.czyzewskialan.todo.user.controller.dto.UserDto(u.login, u.role, "
+            + "u.dateCreated, u.dateUpdated) from User u";
+    String WHERE_ROLE = " where u.role = :role";
+
+    @Query(value = SELECT_USER_DTO, countQuery = "select count(u) from User u")
+    Page<UserDto> findAllDtos(Pageable pageable);
+
+    @Query(SELECT_USER_DTO)
+    Slice<UserDto> findDtoSlice(Pageable pageable);
+
+    @Query(value = SELECT_USER_DTO + WHERE_ROLE, countQuery = "select count(u) from User u" + WHERE_ROLE)
+    Page<UserDto> findDtosByRole(@Param("role") User.Role role, Pageable pageable);
+
+    @Query(SELECT_USER_DTO + WHERE_ROLE)
+    Slice<UserDto> findDtoSliceByRole(@Param("role") User.Role role, Pageable pageable);
+
+    @Query("select u.dateUpdated from User u where u.login = :login")
+    Optional<LocalDateTime> findDateUpdatedByLogin(@Param("login") String login);
+
+    @Query("select u.login from User u")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllLogins();
 }
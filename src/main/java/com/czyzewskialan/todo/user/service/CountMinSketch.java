@@ -0,0 +1,91 @@
+package com.czyzewskialan.todo.user.service;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate event counts per key in depth rows of width counters, a key being counted in one counter of every
+ * row (count-min sketch). The smallest of a key's counters never underestimates, and with probability
+ * 1 - e^-depth it overestimates by at most e/width of all counted events. Sketches of the same shape merge by adding
+ * their counters.
+ */
+class CountMinSketch {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int mask;
+    private final LongAdder total = new LongAdder();
+
+    CountMinSketch(int width, int depth) {
+        int rowWidth = Integer.highestOneBit(Math.max(width, 2));
+        this.counters = new AtomicLongArray(depth * rowWidth);
+        this.depth = depth;
+        this.mask = rowWidth - 1;
+    }
+
+    /**
+     * Counts the events and returns the new estimate of the key.
+     */
+    long add(String key, long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int index : indexes(key)) {
+            estimate = Math.min(estimate, counters.addAndGet(index, count));
+        }
+        total.add(count);
+        return estimate;
+    }
+
+    long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int index : indexes(key)) {
+            estimate = Math.min(estimate, counters.get(index));
+        }
+        return estimate;
+    }
+
+    long total() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the overestimate that is not exceeded with the probability returned by {@link #confidence()}.
+     */
+    long maxOverestimate() {
+        return (long) Math.ceil(Math.E / (mask + 1) * total());
+    }
+
+    double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    void merge(CountMinSketch other) {
+        if (other.counters.length() != counters.length() || other.depth != depth) {
+            throw new IllegalArgumentException("Only sketches of the same shape can be merged.");
+        }
+        for (int index = 0; index < counters.length(); index++) {
+            counters.addAndGet(index, other.counters.get(index));
+        }
+        total.add(other.total());
+    }
+
+    /**
+     * Derives the counter of every row from the two halves of a single hash, the second one made odd so that the
+     * rows never pick the same sequence of counters.
+     */
+    private int[] indexes(String key) {
+        ByteBuffer hash = ByteBuffer.wrap(HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asBytes());
+        long first = hash.getLong();
+        long second = hash.getLong() | 1;
+        int[] indexes = new int[depth];
+        for (int row = 0; row < depth; row++) {
+            indexes[row] = row * (mask + 1) + (int) ((first + row * second) & mask);
+        }
+        return indexes;
+    }
+}
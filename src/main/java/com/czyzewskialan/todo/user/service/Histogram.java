@@ -0,0 +1,51 @@
+package com.czyzewskialan.todo.user.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts in a fixed number of buckets, kept in striped adders so that concurrent updates do not contend. The counts
+ * are exact, and histograms with the same buckets merge by adding their counts bucket by bucket.
+ */
+class Histogram {
+    private final LongAdder[] buckets;
+
+    Histogram(int size) {
+        this.buckets = new LongAdder[size];
+        Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    void add(int bucket, long count) {
+        buckets[bucket].add(count);
+    }
+
+    long get(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    long total() {
+        return Arrays.stream(buckets).mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Replaces the counts. Updates made while the counts are replaced may be lost.
+     */
+    void reset(long... counts) {
+        if (counts.length != buckets.length) {
+            throw new IllegalArgumentException("Expected " + buckets.length + " counts.");
+        }
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            buckets[bucket].reset();
+            buckets[bucket].add(counts[bucket]);
+        }
+    }
+
+    void merge(Histogram other) {
+        if (other.buckets.length != buckets.length) {
+            throw new IllegalArgumentException("Only histograms with the same buckets can be merged.");
+        }
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            add(bucket, other.get(bucket));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.czyzewskialan.todo.user.service;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate number of distinct values, estimated from the longest runs of leading zeros seen in the hashes of the
+ * values (HyperLogLog). With 2^precision registers the relative standard error is 1.04/sqrt(2^precision), whatever
+ * the number of values. Registers only grow, so sketches merge by keeping the larger register of each pair.
+ * Registers take a byte each, four to an int, and are raised with a compare-and-set.
+ */
+class HyperLogLog {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int REGISTERS_PER_SLOT = Integer.SIZE / Byte.SIZE;
+    private static final int REGISTER_MASK = 0xFF;
+
+    private final int precision;
+    private final AtomicIntegerArray slots;
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18.");
+        }
+        this.precision = precision;
+        this.slots = new AtomicIntegerArray((1 << precision) / REGISTERS_PER_SLOT);
+    }
+
+    void add(String value) {
+        long hash = HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        raise(index, rank);
+    }
+
+    long estimate() {
+        int registers = registers();
+        double sum = 0;
+        int zeros = 0;
+        for (int index = 0; index < registers; index++) {
+            int register = register(index);
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(registers) * registers * registers / sum;
+        if (estimate <= 2.5 * registers && zeros > 0) {
+            estimate = registers * Math.log((double) registers / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    double standardError() {
+        return 1.04 / Math.sqrt(registers());
+    }
+
+    void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Only sketches of the same precision can be merged.");
+        }
+        for (int index = 0; index < registers(); index++) {
+            raise(index, other.register(index));
+        }
+    }
+
+    private int registers() {
+        return 1 << precision;
+    }
+
+    private int register(int index) {
+        return (slots.get(index / REGISTERS_PER_SLOT) >>> shift(index)) & REGISTER_MASK;
+    }
+
+    private void raise(int index, int rank) {
+        int slot = index / REGISTERS_PER_SLOT;
+        int shift = shift(index);
+        int current;
+        do {
+            current = slots.get(slot);
+            if (((current >>> shift) & REGISTER_MASK) >= rank) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current, (current & ~(REGISTER_MASK << shift)) | (rank << shift)));
+    }
+
+    private static int shift(int index) {
+        return (index % REGISTERS_PER_SLOT) * Byte.SIZE;
+    }
+
+    private static double alpha(int registers) {
+        return switch (registers) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registers);
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.czyzewskialan.todo.user.service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of all existing logins, so that lookups of logins that certainly do not exist skip the database.
+ * Removed logins cannot be taken out of a Bloom filter, they only cost a database lookup as before.
+ * Until the initial scan has finished every login is reported as possibly existing.
+ */
+@Component
+@Slf4j
+public class LoginFilter {
+    static final String METRIC_NAME = "users.login-filter";
+
+    private final BloomFilter<String> bloomFilter;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Counter definiteMisses;
+    private final Counter falsePositives;
+    private volatile boolean ready;
+
+    public LoginFilter(@Value("${users.login-filter.expected-insertions:1000000}") long expectedInsertions,
+                       @Value("${users.login-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                       MeterRegistry meterRegistry) {
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions,
+                falsePositiveProbability);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        Gauge.builder(METRIC_NAME + ".expected-fpp", bloomFilter, BloomFilter::expectedFpp).register(meterRegistry);
+        Gauge.builder(METRIC_NAME + ".approximate-size", bloomFilter, BloomFilter::approximateElementCount)
+                .register(meterRegistry);
+        Gauge.builder(METRIC_NAME + ".memory", this, LoginFilter::memoryBytes).baseUnit("bytes").register(meterRegistry);
+        this.definiteMisses = Counter.builder(METRIC_NAME + ".lookups").tag("result", "definite-miss").register(meterRegistry);
+        this.falsePositives = Counter.builder(METRIC_NAME + ".lookups").tag("result", "false-positive").register(meterRegistry);
+    }
+
+    public void initialize(Stream<String> logins) {
+        long count = logins.peek(bloomFilter::put).count();
+        ready = true;
+        log.info("Login filter initialized with {} logins.", count);
+    }
+
+    public void add(String login) {
+        bloomFilter.put(login);
+    }
+
+    public boolean mightExist(String login) {
+        if (!ready || bloomFilter.mightContain(login)) {
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    public void recordFalsePositive() {
+        if (ready) {
+            falsePositives.increment();
+        }
+    }
+
+    private double memoryBytes() {
+        double bits = -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        return Math.ceil(bits / Byte.SIZE);
+    }
+}
@@ -0,0 +1,26 @@
+package com.czyzewskialan.todo.user.service;
+
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+public class LoginFilterInitializer {
+
+    private final UserRepository userRepository;
+    private final LoginFilter loginFilter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        try (Stream<String> logins = userRepository.streamAllLogins()) {
+            loginFilter.initialize(logins);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.czyzewskialan.todo.user.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.event.TodoChangedEvent;
+import com.czyzewskialan.todo.todo.event.TodoStatsCountedEvent;
+import com.czyzewskialan.todo.todo.persistance.TodoStatsRepository;
+import com.czyzewskialan.todo.user.controller.dto.ActiveUserDto;
+import com.czyzewskialan.todo.user.controller.dto.DailyActiveUsersDto;
+import com.czyzewskialan.todo.user.controller.dto.UserAnalyticsDto;
+import com.czyzewskialan.todo.user.event.UserCreatedEvent;
+import com.czyzewskialan.todo.user.event.UserDeletedEvent;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global numbers aggregated from the committed changes of users and todos instead of being queried, so reading them
+ * costs the same however many users and todos there are. The counts are taken from the database at startup and
+ * whenever the todo statistics are reconciled; in between they follow the changes.
+ */
+@Service
+@Slf4j
+public class UserAnalyticsService {
+    private static final int NO_PRIORITY = Todo.Priority.values().length;
+    private static final int OPEN = 0;
+    private static final int COMPLETED = 1;
+
+    private final UserRepository userRepository;
+    private final TodoStatsRepository statsRepository;
+    private final int distinctPrecision;
+    private final int mostActiveUsersCount;
+    private final LongAdder users = new LongAdder();
+    private final Histogram priorities = new Histogram(NO_PRIORITY + 1);
+    private final Histogram completion = new Histogram(2);
+    private final AtomicReferenceArray<Day> days;
+    private final CountMinSketch activity;
+    private final Map<String, Long> mostActiveUsers = new HashMap<>();
+
+    public UserAnalyticsService(UserRepository userRepository,
+                                TodoStatsRepository statsRepository,
+                                @Value("${users.analytics.days:7}") int days,
+                                @Value("${users.analytics.distinct-precision:14}") int distinctPrecision,
+                                @Value("${users.analytics.activity-sketch.width:4096}") int activityWidth,
+                                @Value("${users.analytics.activity-sketch.depth:5}") int activityDepth,
+                                @Value("${users.analytics.most-active-users:10}") int mostActiveUsersCount) {
+        this.userRepository = userRepository;
+        this.statsRepository = statsRepository;
+        this.distinctPrecision = distinctPrecision;
+        this.mostActiveUsersCount = mostActiveUsersCount;
+        this.days = new AtomicReferenceArray<>(days);
+        this.activity = new CountMinSketch(activityWidth, activityDepth);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        users.reset();
+        users.add(userRepository.count());
+        resetTodos(statsRepository.countTotal());
+        log.info("User analytics initialized with {} users and {} todos.", users.sum(), priorities.total());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserAnalyticsDto getAnalytics() {
+        long todos = priorities.total();
+        Map<String, Long> priorityCounts = new LinkedHashMap<>();
+        for (Todo.Priority priority : Todo.Priority.values()) {
+            priorityCounts.put(priority.name(), priorities.get(priority.ordinal()));
+        }
+        priorityCounts.put("NONE", priorities.get(NO_PRIORITY));
+
+        LocalDate today = LocalDate.now();
+        HyperLogLog activeUsers = new HyperLogLog(distinctPrecision);
+        List<DailyActiveUsersDto> dailyActiveUsers = new ArrayList<>(days.length());
+        for (int i = 0; i < days.length(); i++) {
+            LocalDate date = today.minusDays(i);
+            Day day = days.get(index(date));
+            boolean counted = day != null && day.epochDay() == date.toEpochDay();
+            if (counted) {
+                activeUsers.merge(day.activeUsers());
+            }
+            dailyActiveUsers.add(new DailyActiveUsersDto(date, counted ? day.activeUsers().estimate() : 0));
+        }
+
+        List<ActiveUserDto> mostActive;
+        synchronized (mostActiveUsers) {
+            mostActive = mostActiveUsers.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .map(entry -> new ActiveUserDto(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+
+        return new UserAnalyticsDto(users.sum(), todos,
+                todos == 0 ? 0 : (double) completion.get(COMPLETED) / todos, priorityCounts,
+                dailyActiveUsers, activeUsers.estimate(), activeUsers.standardError(),
+                mostActive, activity.maxOverestimate(), activity.confidence());
+    }
+
+    @EventListener
+    public void onTodoChanged(TodoChangedEvent event) {
+        if (event.login() != null) {
+            recordActivity(event.login());
+        }
+        if (event.difference() != null) {
+            addTodos(event.difference());
+        }
+    }
+
+    @EventListener
+    public void onTodoStatsCounted(TodoStatsCountedEvent event) {
+        resetTodos(event.total());
+    }
+
+    @EventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        users.increment();
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        users.decrement();
+        synchronized (mostActiveUsers) {
+            mostActiveUsers.remove(event.login());
+        }
+    }
+
+    /**
+     * Counts the user as active today and keeps the users with the highest estimated change counts as the most
+     * active ones. The change counts are kept since startup, so a user who was once very active stays on the list.
+     */
+    private void recordActivity(String login) {
+        activeUsersOn(LocalDate.now()).add(login);
+        long estimate = activity.add(login, 1);
+        synchronized (mostActiveUsers) {
+            mostActiveUsers.put(login, estimate);
+            if (mostActiveUsers.size() > mostActiveUsersCount) {
+                mostActiveUsers.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .map(Map.Entry::getKey)
+                        .ifPresent(mostActiveUsers::remove);
+            }
+        }
+    }
+
+    /**
+     * Returns the sketch of the day, replacing the sketch of the day that last used the same slot.
+     */
+    private HyperLogLog activeUsersOn(LocalDate date) {
+        int index = index(date);
+        Day day = days.get(index);
+        while (day == null || day.epochDay() < date.toEpochDay()) {
+            Day newDay = new Day(date.toEpochDay(), new HyperLogLog(distinctPrecision));
+            if (days.compareAndSet(index, day, newDay)) {
+                return newDay.activeUsers();
+            }
+            day = days.get(index);
+        }
+        return day.activeUsers();
+    }
+
+    private int index(LocalDate date) {
+        return (int) Math.floorMod(date.toEpochDay(), days.length());
+    }
+
+    private void addTodos(TodoStatsDto difference) {
+        priorities.add(Todo.Priority.HIGH.ordinal(), difference.highPriority());
+        priorities.add(Todo.Priority.MEDIUM.ordinal(), difference.mediumPriority());
+        priorities.add(Todo.Priority.LOW.ordinal(), difference.lowPriority());
+        priorities.add(NO_PRIORITY, withoutPriority(difference));
+        completion.add(COMPLETED, difference.completed());
+        completion.add(OPEN, difference.total() - difference.completed());
+    }
+
+    private void resetTodos(TodoStatsDto total) {
+        priorities.reset(total.highPriority(), total.mediumPriority(), total.lowPriority(), withoutPriority(total));
+        completion.reset(total.total() - total.completed(), total.completed());
+    }
+
+    private static long withoutPriority(TodoStatsDto stats) {
+        return stats.total() - stats.highPriority() - stats.mediumPriority() - stats.lowPriority();
+    }
+
+    private record Day(long epochDay, HyperLogLog activeUsers) {
+    }
+}
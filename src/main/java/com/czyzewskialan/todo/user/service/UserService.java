@@ -1,27 +1,34 @@
 package com.czyzewskialan.todo.user.service;
 
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.security.service.UserDetailsServiceImpl;
 import com.czyzewskialan.todo.user.controller.dto.User2UserDtoConverter;
 import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.controller.dto.UserToAdd2UserConverter;
 import com.czyzewskialan.todo.user.controller.dto.UserToAddDto;
 import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
 import com.czyzewskialan.todo.user.persistance.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityNotFoundException;
+import java.time.LocalDateTime;
 
+import static com.czyzewskialan.todo.security.SecurityUtils.getLoggedInUsername;
 import static com.czyzewskialan.todo.security.SecurityUtils.hasAccessToUser;
 import static com.czyzewskialan.todo.utils.LoggingUtils.obfuscatePasswordHash;
 
@@ -36,29 +43,69 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final User2UserDtoConverter user2UserDtoConverter;
     private final UserToAdd2UserConverter userToAdd2UserConverter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoginFilter loginFilter;
 
-    public User getLoggedInUser(Authentication auth) {
-        String username = ((UserDetails) auth.getPrincipal()).getUsername();
-        return userRepository.findById(username)
-                .orElseThrow(() -> new UsernameNotFoundException(username));
+    /**
+     * Returns a reference to the logged-in user after checking that the user still exists, so that a deleted user
+     * is told apart from a failed write. The check reads only the primary key index, not the user.
+     */
+    public User getLoggedInUser(Authentication auth) throws UsernameNotFoundException {
+        String username = getLoggedInUsername(auth);
+        if (!userRepository.existsById(username)) {
+            throw new UsernameNotFoundException(username);
+        }
+        return userRepository.getReferenceById(username);
+    }
+
+    /**
+     * Describes the logged-in user from the principal. The user is loaded only when the principal does not carry the
+     * user's dates.
+     */
+    public UserDto getLoggedInUserDto(Authentication auth) {
+        if (auth.getPrincipal() instanceof CurrentUser currentUser && currentUser.getDateCreated() != null) {
+            return new UserDto(currentUser.getLogin(),
+                    User.Role.valueOf(StringUtils.removeStart(currentUser.getRole(), UserDetailsServiceImpl.ROLE_PREFIX)),
+                    currentUser.getDateCreated(), currentUser.getDateUpdated());
+        }
+        return user2UserDtoConverter.apply(getLoggedInUser(auth));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     public Page<UserDto> findAll(Pageable pageRequest) {
-        return userRepository.findAll(pageRequest)
-                .map(user2UserDtoConverter);
+        return userRepository.findAllDtos(pageRequest);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Slice<UserDto> findSlice(Pageable pageRequest) {
+        return userRepository.findDtoSlice(pageRequest);
+    }
+
+    /**
+     * Reads only the modification time of the user, which is enough to revalidate a cached copy of it.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public LocalDateTime getDateUpdated(String login) {
+        return userRepository.findDateUpdatedByLogin(login)
+                .orElseThrow(() -> new EntityNotFoundException(login));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     public UserDto findOne(String login) {
+        if (!loginFilter.mightExist(login)) {
+            throw new EntityNotFoundException(login);
+        }
         return userRepository.findById(login)
                 .map(user2UserDtoConverter)
-                .orElseThrow(() -> new EntityNotFoundException(login));
+                .orElseThrow(() -> {
+                    loginFilter.recordFalsePositive();
+                    return new EntityNotFoundException(login);
+                });
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     public UserDto create(UserToAddDto userToAdd) {
-        if (userRepository.existsById(userToAdd.getLogin())) {
+        if (loginFilter.mightExist(userToAdd.getLogin()) && userRepository.existsById(userToAdd.getLogin())) {
             throw new EntityExistsException(userToAdd.getLogin());
         }
         User user = userToAdd2UserConverter.apply(userToAdd);
@@ -71,6 +118,7 @@ public class UserService {
     public void delete(String login) {
         if (userRepository.existsById(login)) {
             userRepository.deleteById(login);
+            eventPublisher.publishEvent(new UserCredentialsChangedEvent(login));
             log.info("User \"{}\" has been removed from the database.", login);
         } else {
             throw new EntityNotFoundException(login);
@@ -83,6 +131,7 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException(login));
         user.setRole(role);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(login));
         log.info("Set \"{}\" role for user {}.", role.name(), obfuscatePasswordHash(user));
     }
 
@@ -93,6 +142,7 @@ public class UserService {
         String randomPassword = RandomStringUtils.randomAlphanumeric(LENGTH_RANDOM_PASSWORD);
         user.setPasswordHash(passwordEncoder.encode(randomPassword));
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(login));
         log.info("Reset password for user {}.", obfuscatePasswordHash(user));
         return randomPassword;
     }
@@ -105,6 +155,7 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException(login));
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(login));
         log.info("Changed password for user {}.", obfuscatePasswordHash(user));
     }
 }
@@ -0,0 +1,23 @@
+create sequence todos_seq start with 1 increment by 50;
+
+create table users (
+    login         varchar(255) not null,
+    password_hash varchar(255),
+    role          varchar(255),
+    date_created  timestamp    not null,
+    date_updated  timestamp    not null,
+    constraint users_pk primary key (login)
+);
+
+create table todos (
+    id           bigint       not null,
+    title        varchar(255) not null,
+    description  varchar(255),
+    completed    boolean,
+    priority     integer,
+    date_created timestamp,
+    date_updated timestamp,
+    username     varchar(255) not null,
+    constraint todos_pk primary key (id),
+    constraint todos_users_fk foreign key (username) references users (login)
+);
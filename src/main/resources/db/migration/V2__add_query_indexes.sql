@@ -0,0 +1,11 @@
+-- Owner-scoped listings and searches: every non-admin query filters by username first,
+-- optionally followed by the completed and priority filters of the search endpoint.
+create index todos_username_completed_priority_idx on todos (username, completed, priority);
+
+-- Admin searches are not scoped to an owner, so each selective filter needs its own leading column.
+-- completed has two values, so filtering all todos on it alone matches about half of them and an index would only
+-- add random reads and write cost; completion is indexed after the owner or the priority instead.
+create index todos_title_idx on todos (title);
+create index todos_priority_completed_idx on todos (priority, completed);
+
+create index users_role_idx on users (role);
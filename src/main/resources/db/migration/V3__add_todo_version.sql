@@ -0,0 +1 @@
+alter table todos add column version bigint default 0 not null;
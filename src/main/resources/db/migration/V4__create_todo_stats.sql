@@ -0,0 +1,13 @@
+-- per-user counters kept in step with the todos; a missing or dirty row is recounted when it is read
+create table todo_stats
+(
+    username        varchar(255)          not null,
+    total           bigint  default 0     not null,
+    completed       bigint  default 0     not null,
+    high_priority   bigint  default 0     not null,
+    medium_priority bigint  default 0     not null,
+    low_priority    bigint  default 0     not null,
+    dirty           boolean default false not null,
+    constraint todo_stats_pk primary key (username),
+    constraint todo_stats_users_fk foreign key (username) references users (login) on delete cascade
+);
@@ -0,0 +1,169 @@
+package com.czyzewskialan.todo;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSearchParamsDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.SearchTodoService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.ownedBy;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on every statement Hibernate generates for the filtered queries, including the count queries of the
+ * paged ones, and fails on full table scans. Parameters are left unbound, so the plans are the generic ones H2
+ * prepares before seeing any values.
+ * <p>
+ * The tables are seeded and analyzed first, as H2 estimates the cost of an index from the selectivity of its columns
+ * and would choose other plans for nearly empty tables. The logged-in user has enough todos in every combination of
+ * priority and completion to fill a page, so that the paged queries also run their count queries.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.czyzewskialan.todo.QueryPlanIntegrationTest$RecordingStatementInspector")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanIntegrationTest {
+    private static final String USERNAME = "user1";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String TITLE = "Title";
+    private static final Pageable PAGE_REQUEST = PageRequest.of(0, 10);
+    private static final int USERS = 100;
+    private static final int TODOS_PER_USER = 100;
+    private static final int ADMIN_EVERY = 5;
+    private static final int BATCH_SIZE = 1000;
+    private static final String TABLE_SCAN = "tableScan";
+    private static final String COUNT = "count(";
+
+    @Autowired
+    private SearchTodoService searchTodoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Todo> todos = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < USERS; i++) {
+                User user = userRepository.save(User.builder().login("user" + i).passwordHash(PASSWORD_HASH)
+                        .role(i % ADMIN_EVERY == 0 ? User.Role.ADMIN : User.Role.USER).build());
+                for (int j = 0; j < TODOS_PER_USER; j++) {
+                    todos.add(Todo.builder()
+                            .title(user.getLogin().equals(USERNAME) ? TITLE : "Todo " + i + "-" + j)
+                            .priority(Todo.Priority.values()[j % Todo.Priority.values().length])
+                            .completed(j % 2 == 0)
+                            .user(user)
+                            .build());
+                    if (todos.size() == BATCH_SIZE) {
+                        todoRepository.persistBatch(todos);
+                        todos.clear();
+                    }
+                }
+            }
+            todoRepository.persistBatch(todos);
+        });
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void shouldNotFallBackToFullTableScan(String name, boolean paged, Consumer<QueryPlanIntegrationTest> query) {
+        //when
+        query.accept(this);
+
+        //then
+        assertThat(RecordingStatementInspector.STATEMENTS).isNotEmpty();
+        if (paged) {
+            assertThat(RecordingStatementInspector.STATEMENTS).anyMatch(sql -> sql.contains(COUNT));
+        }
+        for (String sql : RecordingStatementInspector.STATEMENTS) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            assertThat(plan).as(plan).doesNotContain(TABLE_SCAN);
+        }
+    }
+
+    /**
+     * Filtering all todos only by completion is left out, as it matches about half of them and is best served by a
+     * scan.
+     */
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of("todos of user", true, query(test -> test.todoRepository.findAllDtos(ownedBy(USERNAME), PAGE_REQUEST))),
+                Arguments.of("todo titles of user", false, query(test -> test.todoRepository.findTitlesByUserLogin(USERNAME))),
+                Arguments.of("users by role", true, query(test -> test.userRepository.findDtosByRole(User.Role.ADMIN, PAGE_REQUEST))),
+                Arguments.of("own todos", true, searchTodos(null, null, null, "ROLE_USER")),
+                Arguments.of("own todos by title", true, searchTodos(TITLE, null, null, "ROLE_USER")),
+                Arguments.of("own todos by priority", true, searchTodos(null, Todo.Priority.HIGH, null, "ROLE_USER")),
+                Arguments.of("own todos by completion", true, searchTodos(null, null, true, "ROLE_USER")),
+                Arguments.of("own todos by priority and completion", true, searchTodos(null, Todo.Priority.HIGH, true, "ROLE_USER")),
+                Arguments.of("own todos by all filters", true, searchTodos(TITLE, Todo.Priority.HIGH, true, "ROLE_USER")),
+                Arguments.of("all todos by title", true, searchTodos(TITLE, null, null, "ROLE_ADMIN")),
+                Arguments.of("all todos by priority", true, searchTodos(null, Todo.Priority.HIGH, null, "ROLE_ADMIN")),
+                Arguments.of("all todos by priority and completion", true, searchTodos(null, Todo.Priority.HIGH, true, "ROLE_ADMIN")),
+                Arguments.of("all todos by all filters", true, searchTodos(TITLE, Todo.Priority.HIGH, true, "ROLE_ADMIN")));
+    }
+
+    private static Consumer<QueryPlanIntegrationTest> query(Consumer<QueryPlanIntegrationTest> query) {
+        return query;
+    }
+
+    private static Consumer<QueryPlanIntegrationTest> searchTodos(String title, Todo.Priority priority, Boolean completed,
+                                                                  String role) {
+        TodoSearchParamsDto searchParams = new TodoSearchParamsDto(title, priority, completed, PAGE_REQUEST);
+        return test -> test.searchTodoService.find(searchParams, authentication(role));
+    }
+
+    private static Authentication authentication(String role) {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role(role).build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
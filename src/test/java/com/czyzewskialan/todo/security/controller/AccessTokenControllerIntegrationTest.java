@@ -0,0 +1,103 @@
+package com.czyzewskialan.todo.security.controller;
+
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AccessTokenControllerIntegrationTest {
+    private static final String USERNAME = "tokenUser";
+    private static final String PASSWORD = "password";
+    private static final String URL_TOKEN = "/token";
+    private static final String URL_TODOS = "/todos";
+    private static final String THROTTLED_USERNAME = "throttledUser";
+    private static final int MAX_FAILURES_PER_LOGIN = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(User.builder().login(USERNAME).passwordHash(passwordEncoder.encode(PASSWORD))
+                .role(User.Role.USER).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(USERNAME);
+    }
+
+    @Test
+    void shouldIssueTokenForBasicCredentialsAndAcceptItOnApiRoutes() throws Exception {
+        //given
+        String token = obtainToken();
+
+        //when + then
+        mockMvc.perform(get(URL_TODOS).header(AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReturn401ForInvalidToken() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_TODOS).header(AUTHORIZATION, "Bearer invalid.token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldNotIssueTokenForToken() throws Exception {
+        //given
+        String token = obtainToken();
+
+        //when + then
+        mockMvc.perform(post(URL_TOKEN).header(AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void shouldReturn429WithRetryAfterForThrottledLogin() throws Exception {
+        //given
+        for (int i = 0; i < MAX_FAILURES_PER_LOGIN; i++) {
+            mockMvc.perform(post(URL_TOKEN).with(httpBasic(THROTTLED_USERNAME, "wrongPassword")))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        //when + then
+        mockMvc.perform(post(URL_TOKEN).with(httpBasic(THROTTLED_USERNAME, "wrongPassword")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(RETRY_AFTER));
+    }
+
+    private String obtainToken() throws Exception {
+        String response = mockMvc.perform(post(URL_TOKEN).with(httpBasic(USERNAME, PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tokenType", is("Bearer")))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("accessToken").asText();
+    }
+}
@@ -0,0 +1,66 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlgorithmDelegatingPasswordEncoderTest {
+    private static final String PASSWORD = "password";
+
+    @ParameterizedTest
+    @EnumSource(PasswordHashingAlgorithm.class)
+    void shouldVerifyPasswordEncodedWithEachAlgorithm(PasswordHashingAlgorithm algorithm) {
+        //given
+        AlgorithmDelegatingPasswordEncoder encoder = new AlgorithmDelegatingPasswordEncoder(algorithm, algorithm.getMinCost());
+
+        //when
+        String hash = encoder.encode(PASSWORD);
+
+        //then
+        assertThat(hash).startsWith("{" + algorithm.getId() + ":" + algorithm.getMinCost() + "}");
+        assertThat(encoder.matches(PASSWORD, hash)).isTrue();
+        assertThat(encoder.matches("wrongPassword", hash)).isFalse();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} cost {1} hash, configured {2} cost {3}. Upgrade: {4}.")
+    @MethodSource("argumentsUpgradeEncoding")
+    void shouldVerifyOldHashesAndUpgradeThemToConfiguredAlgorithmAndCost(PasswordHashingAlgorithm hashAlgorithm, int hashCost,
+                                                                         PasswordHashingAlgorithm algorithm, int cost,
+                                                                         boolean expectedUpgrade) {
+        //given
+        String oldHash = new AlgorithmDelegatingPasswordEncoder(hashAlgorithm, hashCost).encode(PASSWORD);
+        AlgorithmDelegatingPasswordEncoder encoder = new AlgorithmDelegatingPasswordEncoder(algorithm, cost);
+
+        //when + then
+        assertThat(encoder.matches(PASSWORD, oldHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(oldHash)).isEqualTo(expectedUpgrade);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PasswordHashingAlgorithm.class)
+    void shouldVerifyAndUpgradeHashWithoutPrefix(PasswordHashingAlgorithm algorithm) {
+        //given
+        String legacyHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        AlgorithmDelegatingPasswordEncoder encoder = new AlgorithmDelegatingPasswordEncoder(algorithm, algorithm.getMinCost());
+
+        //when + then
+        assertThat(encoder.matches(PASSWORD, legacyHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    private static Stream<Arguments> argumentsUpgradeEncoding() {
+        return Stream.of(
+                Arguments.of(PasswordHashingAlgorithm.BCRYPT, 4, PasswordHashingAlgorithm.BCRYPT, 5, true),
+                Arguments.of(PasswordHashingAlgorithm.BCRYPT, 5, PasswordHashingAlgorithm.BCRYPT, 4, false),
+                Arguments.of(PasswordHashingAlgorithm.PBKDF2, 10_000, PasswordHashingAlgorithm.PBKDF2, 20_000, true),
+                Arguments.of(PasswordHashingAlgorithm.BCRYPT, 4, PasswordHashingAlgorithm.ARGON2, 1, true),
+                Arguments.of(PasswordHashingAlgorithm.SCRYPT, 1024, PasswordHashingAlgorithm.PBKDF2, 10_000, true));
+    }
+}
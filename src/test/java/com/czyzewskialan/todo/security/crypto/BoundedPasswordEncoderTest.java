@@ -0,0 +1,87 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.czyzewskialan.todo.security.crypto.BoundedPasswordEncoder.METRIC_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedPasswordEncoderTest {
+    private static final String PASSWORD = "password";
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordEncoder.close();
+    }
+
+    @Test
+    void shouldDelegateHashingAndRecordItsLatency() {
+        //given
+        release.countDown();
+
+        //when
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        //then
+        assertThat(passwordEncoder.matches(PASSWORD, hash)).isTrue();
+        assertThat(meterRegistry.get(METRIC_NAME).tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(METRIC_NAME).tag("operation", "matches").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectHashingImmediatelyWhenPoolAndQueueAreFull() throws Exception {
+        //given
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode(PASSWORD));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode(PASSWORD));
+        while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        //when + then
+        assertThrows(PasswordHashingRejectedException.class, () -> passwordEncoder.encode(PASSWORD));
+        assertThat(meterRegistry.get(METRIC_NAME + ".rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{hash}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("{hash}" + rawPassword);
+        }
+    }
+}
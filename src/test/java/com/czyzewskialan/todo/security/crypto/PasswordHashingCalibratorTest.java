@@ -0,0 +1,31 @@
+package com.czyzewskialan.todo.security.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingCalibratorTest {
+
+    @ParameterizedTest
+    @EnumSource(PasswordHashingAlgorithm.class)
+    void shouldChooseMinimalCostWhenTargetLatencyIsUnreachable(PasswordHashingAlgorithm algorithm) {
+        //when
+        int cost = PasswordHashingCalibrator.calibrate(algorithm, Duration.ofNanos(1));
+
+        //then
+        assertThat(cost).isEqualTo(algorithm.getMinCost());
+    }
+
+    @Test
+    void shouldChooseHigherCostWhenTargetLatencyAllowsIt() {
+        //when
+        int cost = PasswordHashingCalibrator.calibrate(PasswordHashingAlgorithm.BCRYPT, Duration.ofSeconds(1));
+
+        //then
+        assertThat(cost).isGreaterThan(PasswordHashingAlgorithm.BCRYPT.getMinCost());
+    }
+}
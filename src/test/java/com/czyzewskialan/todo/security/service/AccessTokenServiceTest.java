@@ -0,0 +1,98 @@
+package com.czyzewskialan.todo.security.service;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessTokenServiceTest {
+    private static final String USERNAME = "user:1";
+    private static final String SECRET = "secret";
+    private static final CurrentUser CURRENT_USER = CurrentUser.builder()
+            .login(USERNAME).passwordHash("passwordHash").role("ROLE_ADMIN")
+            .dateCreated(LocalDateTime.of(2020, 1, 2, 3, 4, 5, 678_901_000))
+            .dateUpdated(LocalDateTime.of(2021, 6, 7, 8, 9, 10))
+            .build();
+
+    private AccessTokenService accessTokenService;
+
+    @BeforeEach
+    void setUp() {
+        accessTokenService = new AccessTokenService(SECRET, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void shouldAuthenticateWithIssuedTokenWithoutPasswordHash() {
+        //given
+        String token = accessTokenService.issue(CURRENT_USER).accessToken();
+
+        //when
+        Optional<Authentication> authentication = accessTokenService.authenticate(token);
+
+        //then
+        assertThat(authentication).isPresent();
+        CurrentUser principal = (CurrentUser) authentication.get().getPrincipal();
+        assertThat(principal.getLogin()).isEqualTo(USERNAME);
+        assertThat(principal.getPassword()).isNull();
+        assertThat(principal.getDateCreated()).isEqualTo(CURRENT_USER.getDateCreated());
+        assertThat(principal.getDateUpdated()).isEqualTo(CURRENT_USER.getDateUpdated());
+        assertThat(authentication.get().getAuthorities())
+                .extracting("authority")
+                .containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void shouldRejectTokenWithModifiedPayload() {
+        //given
+        String token = accessTokenService.issue(CURRENT_USER).accessToken();
+        String otherToken = accessTokenService.issue(CurrentUser.builder().login("other").role("ROLE_USER").build())
+                .accessToken();
+        String forged = otherToken.substring(0, otherToken.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        //when + then
+        assertThat(accessTokenService.authenticate(forged)).isEmpty();
+        assertThat(accessTokenService.authenticate("garbage")).isEmpty();
+    }
+
+    @Test
+    void shouldRejectTokenSignedWithOtherSecret() {
+        //given
+        String token = new AccessTokenService("otherSecret", Duration.ofMinutes(1), 100)
+                .issue(CURRENT_USER).accessToken();
+
+        //when + then
+        assertThat(accessTokenService.authenticate(token)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectExpiredToken() {
+        //given
+        accessTokenService = new AccessTokenService(SECRET, Duration.ZERO, 100);
+        String token = accessTokenService.issue(CURRENT_USER).accessToken();
+
+        //when + then
+        assertThat(accessTokenService.authenticate(token)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectTokensIssuedBeforeCredentialsChanged() throws InterruptedException {
+        //given
+        String token = accessTokenService.issue(CURRENT_USER).accessToken();
+
+        //when
+        accessTokenService.onCredentialsChanged(new UserCredentialsChangedEvent(USERNAME));
+        Thread.sleep(2);
+        String newToken = accessTokenService.issue(CURRENT_USER).accessToken();
+
+        //then
+        assertThat(accessTokenService.authenticate(token)).isEmpty();
+        assertThat(accessTokenService.authenticate(newToken)).isPresent();
+    }
+}
@@ -0,0 +1,108 @@
+package com.czyzewskialan.todo.security.service;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class CachingAuthenticationProviderTest {
+    private static final String USERNAME = "user1";
+    private static final String PASSWORD = "password";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final CurrentUser CURRENT_USER = CurrentUser.builder()
+            .login(USERNAME).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+
+    private AutoCloseable autoCloseable;
+    @Mock
+    private UserDetailsService userDetailsService;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    private CredentialsCache credentialsCache;
+    private CachingAuthenticationProvider authenticationProvider;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = openMocks(this);
+        credentialsCache = new CredentialsCache(100, Duration.ofMinutes(5));
+        authenticationProvider = new CachingAuthenticationProvider(credentialsCache);
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        when(userDetailsService.loadUserByUsername(USERNAME))
+                .thenReturn(CURRENT_USER);
+        when(passwordEncoder.matches(anyString(), anyString()))
+                .thenAnswer(invocation -> PASSWORD.equals(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    @Test
+    void shouldVerifyPasswordOnlyOnceWhenTheSameCredentialsAreUsedAgain() {
+        //when
+        authenticationProvider.authenticate(token(PASSWORD));
+        Authentication result = authenticationProvider.authenticate(token(PASSWORD));
+
+        //then
+        assertThat(result.isAuthenticated()).isTrue();
+        assertThat(result.getPrincipal()).isEqualTo(CURRENT_USER);
+        verify(userDetailsService, times(1)).loadUserByUsername(USERNAME);
+        verify(passwordEncoder, times(1)).matches(any(), any());
+    }
+
+    @Test
+    void shouldNotAcceptWrongPasswordWhenCorrectOneIsCached() {
+        //given
+        authenticationProvider.authenticate(token(PASSWORD));
+
+        //when + then
+        assertThrows(BadCredentialsException.class,
+                () -> authenticationProvider.authenticate(token("wrongPassword")));
+    }
+
+    @Test
+    void shouldVerifyPasswordAgainWhenCredentialsHaveBeenInvalidated() {
+        //given
+        authenticationProvider.authenticate(token(PASSWORD));
+
+        //when
+        credentialsCache.invalidate(USERNAME);
+        authenticationProvider.authenticate(token(PASSWORD));
+
+        //then
+        verify(passwordEncoder, times(2)).matches(any(), any());
+    }
+
+    @Test
+    void shouldNotCacheCredentialsVerifiedBeforeInvalidation() {
+        //given
+        long stamp = credentialsCache.stamp();
+        credentialsCache.invalidate(USERNAME);
+
+        //when
+        credentialsCache.put(USERNAME, PASSWORD, CURRENT_USER, stamp);
+
+        //then
+        assertThat(credentialsCache.get(USERNAME, PASSWORD)).isEmpty();
+    }
+
+    private static UsernamePasswordAuthenticationToken token(String password) {
+        return new UsernamePasswordAuthenticationToken(USERNAME, password);
+    }
+}
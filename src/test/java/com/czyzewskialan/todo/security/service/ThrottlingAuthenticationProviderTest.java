@@ -0,0 +1,79 @@
+package com.czyzewskialan.todo.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.time.Duration;
+
+import static com.czyzewskialan.todo.security.service.LoginAttemptThrottle.METRIC_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class ThrottlingAuthenticationProviderTest {
+    private static final int MAX_FAILURES = 3;
+    private static final String USERNAME = "user1";
+
+    private AutoCloseable autoCloseable;
+    @Mock
+    private AuthenticationProvider delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private ThrottlingAuthenticationProvider authenticationProvider;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        LoginAttemptThrottle throttle = new LoginAttemptThrottle(MAX_FAILURES, 100, Duration.ofMinutes(1), 1024, meterRegistry);
+        authenticationProvider = new ThrottlingAuthenticationProvider(throttle, delegate);
+        when(delegate.authenticate(any()))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    @Test
+    void shouldRejectLoginWithoutCheckingCredentialsAfterTooManyFailures() {
+        //given
+        for (int i = 0; i < MAX_FAILURES; i++) {
+            assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token(USERNAME)));
+        }
+
+        //when
+        LoginThrottledException exception = assertThrows(LoginThrottledException.class,
+                () -> authenticationProvider.authenticate(token(USERNAME)));
+
+        //then
+        assertThat(exception.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        verify(delegate, times(MAX_FAILURES)).authenticate(any());
+        assertThat(meterRegistry.get(METRIC_NAME).tag("result", "rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(METRIC_NAME).tag("result", "admitted").counter().count()).isEqualTo(MAX_FAILURES);
+    }
+
+    @Test
+    void shouldStillCheckCredentialsOfOtherLogins() {
+        //given
+        for (int i = 0; i < MAX_FAILURES; i++) {
+            assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token(USERNAME)));
+        }
+
+        //when + then
+        assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token("user2")));
+        verify(delegate, times(MAX_FAILURES + 1)).authenticate(any());
+    }
+
+    private static UsernamePasswordAuthenticationToken token(String username) {
+        return new UsernamePasswordAuthenticationToken(username, "wrongPassword");
+    }
+}
@@ -0,0 +1,53 @@
+package com.czyzewskialan.todo.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WindowedCountSketchTest {
+    private static final long WINDOW_MILLIS = 60_000;
+    private static final long NOW = 1_000 * WINDOW_MILLIS;
+
+    @Test
+    void shouldCountEventsPerKeyWithinWindow() {
+        //given
+        WindowedCountSketch sketch = new WindowedCountSketch(1024, WINDOW_MILLIS);
+
+        //when
+        IntStream.range(0, 5).forEach(i -> sketch.increment("user1", NOW));
+        sketch.increment("user2", NOW);
+
+        //then
+        assertThat(sketch.estimate("user1", NOW)).isEqualTo(5);
+        assertThat(sketch.estimate("user2", NOW)).isEqualTo(1);
+        assertThat(sketch.estimate("user3", NOW)).isZero();
+    }
+
+    @Test
+    void shouldForgetEventsFromPreviousWindow() {
+        //given
+        WindowedCountSketch sketch = new WindowedCountSketch(1024, WINDOW_MILLIS);
+        IntStream.range(0, 5).forEach(i -> sketch.increment("user1", NOW));
+
+        //when
+        sketch.increment("user1", NOW + WINDOW_MILLIS);
+
+        //then
+        assertThat(sketch.estimate("user1", NOW + WINDOW_MILLIS)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNeverUnderestimateWhenManyKeysShareSmallSketch() {
+        //given
+        WindowedCountSketch sketch = new WindowedCountSketch(16, WINDOW_MILLIS);
+
+        //when
+        IntStream.range(0, 10_000).forEach(i -> sketch.increment("user" + i, NOW));
+        IntStream.range(0, 3).forEach(i -> sketch.increment("target", NOW));
+
+        //then
+        assertThat(sketch.estimate("target", NOW)).isGreaterThanOrEqualTo(3);
+    }
+}
@@ -0,0 +1,118 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.SearchTodoService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class SearchTodoRestControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_BASE = "/search/todos";
+
+    @Autowired
+    private SearchTodoService searchTodoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        User user2 = userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        todoRepository.save(Todo.builder().title("Low").priority(Todo.Priority.LOW).completed(false).user(user1).build());
+        todoRepository.save(Todo.builder().title("Done").priority(Todo.Priority.LOW).completed(true).user(user1).build());
+        todoRepository.save(Todo.builder().title("High").priority(Todo.Priority.HIGH).completed(false).user(user1).build());
+        todoRepository.save(Todo.builder().title("Other").priority(Todo.Priority.LOW).completed(true).user(user2).build());
+        mockMvc = standaloneSetup(new SearchTodoRestController(searchTodoService))
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver()).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldUpdateOnlyUsersMatchingTodosWithOneStatement() throws Exception {
+        //when + then
+        mockMvc.perform(patch(URL_BASE).param("priority", "LOW").contentType(APPLICATION_JSON)
+                        .content("{\"priority\":\"MEDIUM\"}")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(todoRepository.findAll())
+                .filteredOn(todo -> todo.getPriority() == Todo.Priority.LOW)
+                .extracting(Todo::getTitle)
+                .containsExactly("Other");
+    }
+
+    @Test
+    void shouldRejectUpdateWithoutChanges() throws Exception {
+        //when + then
+        mockMvc.perform(patch(URL_BASE).contentType(APPLICATION_JSON).content("{}")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldDeleteOnlyUsersMatchingTodosWithOneStatement() throws Exception {
+        //when + then
+        mockMvc.perform(delete(URL_BASE).param("completed", "true")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(todoRepository.findAll())
+                .extracting(Todo::getTitle)
+                .containsExactlyInAnyOrder("Low", "High", "Other");
+    }
+
+    @Test
+    void shouldRejectDeleteWithoutFilters() throws Exception {
+        //when + then
+        mockMvc.perform(delete(URL_BASE).param("title", "")
+                        .principal(authentication(USERNAME_1, "ROLE_ADMIN")))
+                .andExpect(status().isBadRequest());
+        assertThat(todoRepository.count()).isEqualTo(4);
+    }
+
+    private static Authentication authentication(String username, String role) {
+        CurrentUser currentUser = CurrentUser.builder().login(username).passwordHash(PASSWORD_HASH).role(role).build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
@@ -0,0 +1,87 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoAutocompleteService;
+import com.czyzewskialan.todo.todo.service.TodoService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class TodoAutocompleteControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_AUTOCOMPLETE = "/todos/autocomplete";
+
+    @Autowired
+    private TodoAutocompleteService autocompleteService;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        User user2 = userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        todoRepository.save(Todo.builder().title("Buy milk").user(user1).build());
+        todoRepository.save(Todo.builder().title("Buy tickets").user(user2).build());
+        mockMvc = standaloneSetup(new TodoAutocompleteController(autocompleteService)).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldCompleteOwnTitlesAndPickUpNewTodosWithoutReloading() throws Exception {
+        //given
+        mockMvc.perform(get(URL_AUTOCOMPLETE).param("prefix", "buy").principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Buy milk")));
+        todoService.create(new TodoToAddDto("Buy bread", null, null, false), authentication());
+        statistics.clear();
+
+        //when + then
+        mockMvc.perform(get(URL_AUTOCOMPLETE).param("prefix", "buy").principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Buy bread", "Buy milk")));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    private static Authentication authentication() {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
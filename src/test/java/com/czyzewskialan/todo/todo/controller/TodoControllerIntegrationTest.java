@@ -0,0 +1,424 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoOperationDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.persistance.TodoStatsRepository;
+import com.czyzewskialan.todo.todo.service.TodoService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.czyzewskialan.todo.TestJsonUtils.convertObjectToJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class TodoControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_BASE = "/todos";
+
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TodoStatsRepository statsRepository;
+    @Autowired
+    private UserDetailsService userDetailsService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private Todo todo1;
+    private Todo otherTodo;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        User user2 = userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        for (int i = 0; i < 3; i++) {
+            todo1 = todoRepository.save(Todo.builder().title("Todo " + i).priority(Todo.Priority.MEDIUM).completed(false).user(user1).build());
+        }
+        otherTodo = todoRepository.save(Todo.builder().title("Other").priority(Todo.Priority.LOW).completed(false).user(user2).build());
+        mockMvc = standaloneSetup(new TodoController(todoService))
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver()).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldListUsersTodosWithOneQueryAndPageCount() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_BASE).param("size", "2").principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].user.login").value(USERNAME_1))
+                .andExpect(jsonPath("$.totalElements").value(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void shouldListUsersTodosWithoutCountQueryWhenCountIsNotRequested() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_BASE).param("size", "2").param("count", "false")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldScrollThroughUsersTodosWithOneQueryPerSlice() throws Exception {
+        //given
+        MvcResult firstSlice = mockMvc.perform(get(URL_BASE + "/scroll").param("size", "2").param("sort", "title,desc")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].title", contains("Todo 2", "Todo 1")))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+        String cursor = JsonPath.read(firstSlice.getResponse().getContentAsString(), "$.nextCursor");
+
+        //when + then
+        mockMvc.perform(get(URL_BASE + "/scroll").param("size", "2").param("cursor", cursor)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].title", contains("Todo 0")))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCreateTodoWithoutLoadingTheOwner() throws Exception {
+        //given
+        UserDetails principal = userDetailsService.loadUserByUsername(USERNAME_1);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        statistics.clear();
+
+        //when + then
+        mockMvc.perform(post(URL_BASE).contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto("New", null, null, false)))
+                        .principal(authentication))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.user.login").value(USERNAME_1))
+                .andExpect(jsonPath("$.user.role").value("USER"));
+        mockMvc.perform(post(URL_BASE + "/batch").contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(List.of(new TodoOperationDto(TodoOperationDto.Type.CREATE, null,
+                                new TodoToAddDto("Batched", null, null, false)))))
+                        .principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].todo.user.login").value(USERNAME_1));
+        assertThat(statistics.getEntityStatistics(User.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(User.class.getName()).getFetchCount()).isZero();
+    }
+
+    @Test
+    void shouldAnswerUnauthorizedWhenLoggedInUserNoLongerExists() throws Exception {
+        //when + then
+        mockMvc.perform(post(URL_BASE).contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto("New", null, null, false)))
+                        .principal(authentication("removedUser", "ROLE_USER")))
+                .andExpect(status().isUnauthorized());
+        assertThat(todoRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldGetManyTodosWithOneQueryAndHideOtherUsersTodos() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_BASE).param("ids", todo1.getId() + "," + otherTodo.getId() + ",-1")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status", contains(200, 404, 404)))
+                .andExpect(jsonPath("$[0].todo.title").value(todo1.getTitle()))
+                .andExpect(jsonPath("$[1].todo").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectRequestForTooManyTodosWithoutQuery() throws Exception {
+        //given
+        String ids = LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        //when + then
+        mockMvc.perform(get(URL_BASE).param("ids", ids).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isBadRequest());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void shouldExecuteBatchOfOperationsAndReportEachResult() throws Exception {
+        //given
+        List<TodoOperationDto> operations = List.of(
+                new TodoOperationDto(TodoOperationDto.Type.CREATE, null, new TodoToAddDto("New", Todo.Priority.HIGH, null, false)),
+                new TodoOperationDto(TodoOperationDto.Type.CREATE, null, new TodoToAddDto(null, null, null, null)),
+                new TodoOperationDto(TodoOperationDto.Type.UPDATE, todo1.getId(), new TodoToAddDto("Updated", null, null, true)),
+                new TodoOperationDto(TodoOperationDto.Type.DELETE, otherTodo.getId(), null));
+
+        //when + then
+        mockMvc.perform(post(URL_BASE + "/batch").contentType(APPLICATION_JSON).content(convertObjectToJson(operations))
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status", contains(201, 400, 200, 404)))
+                .andExpect(jsonPath("$[2].todo.title").value("Updated"));
+        assertThat(todoRepository.findById(todo1.getId())).hasValueSatisfying(todo -> assertThat(todo.getCompleted()).isTrue());
+        assertThat(todoRepository.existsById(otherTodo.getId())).isTrue();
+        assertThat(todoRepository.count()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_BASE + "/scroll").param("cursor", "invalid")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithVersionQueryOnlyWhenTodoIsUnchanged() throws Exception {
+        //given
+        String eTag = mockMvc.perform(get(URL_BASE + "/" + todo1.getId()).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        statistics.clear();
+
+        //when + then
+        mockMvc.perform(get(URL_BASE + "/" + todo1.getId()).header("If-None-Match", eTag)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutQueriesWhileUsersTodosAreUnchanged() throws Exception {
+        //given
+        String eTag = mockMvc.perform(get(URL_BASE).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        todoService.create(new TodoToAddDto("Other user's todo", null, null, false), authentication(USERNAME_2, "ROLE_USER"));
+        statistics.clear();
+
+        //when + then
+        mockMvc.perform(get(URL_BASE).header("If-None-Match", eTag).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotModified());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        todoService.create(new TodoToAddDto("New todo", null, null, false), authentication(USERNAME_1, "ROLE_USER"));
+        mockMvc.perform(get(URL_BASE).header("If-None-Match", eTag).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(4));
+    }
+
+    @Test
+    void shouldUpdateOnlyWhenIfMatchHasCurrentVersion() throws Exception {
+        //given
+        String url = URL_BASE + "/" + todo1.getId();
+        String eTag = mockMvc.perform(get(url).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andReturn().getResponse().getHeader("ETag");
+        String body = convertObjectToJson(new TodoToAddDto("Changed", null, null, null));
+
+        //when + then
+        String newETag = mockMvc.perform(put(url).header("If-Match", eTag).contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Changed"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(newETag).isNotEqualTo(eTag);
+        mockMvc.perform(put(url).header("If-Match", eTag).contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put(URL_BASE + "/0").header("If-Match", eTag).contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get(url).header("If-None-Match", newETag).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldRequireExistingAccessibleTodoWhenIfMatchIsAnyVersion() throws Exception {
+        //given
+        String url = URL_BASE + "/" + todo1.getId();
+        String body = convertObjectToJson(new TodoToAddDto("Changed", null, null, null));
+        long todos = todoRepository.count();
+
+        //when + then
+        mockMvc.perform(put(URL_BASE + "/0").header("If-Match", "*").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put(url).header("If-Match", "*").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_2, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch(url).header("If-Match", "*").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_2, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put(url).header("If-Match", "\"-1\"").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch(url).header("If-Match", "\"-1\"").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(todoRepository.count()).isEqualTo(todos);
+        assertThat(todoRepository.findById(todo1.getId())).map(Todo::getTitle).contains(todo1.getTitle());
+        mockMvc.perform(put(url).header("If-Match", "*").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Changed"));
+        mockMvc.perform(patch(url).header("If-Match", "*").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void shouldPatchTodoWithOneStatementWhereUpdateNeedsMore() throws Exception {
+        //given
+        String body = convertObjectToJson(new TodoToAddDto(null, null, null, true));
+        mockMvc.perform(put(URL_BASE + "/" + todo1.getId()).contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isOk());
+        long updateStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+
+        //when + then
+        mockMvc.perform(patch(URL_BASE + "/" + todo1.getId()).contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNoContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(updateStatements).isEqualTo(2);
+        assertThat(todoRepository.findById(todo1.getId())).get()
+                .extracting(Todo::getCompleted, Todo::getTitle, Todo::getVersion)
+                .containsExactly(true, "Todo 2", 2L);
+    }
+
+    @Test
+    void shouldNotPatchTodoOfOtherUser() throws Exception {
+        //when + then
+        mockMvc.perform(patch(URL_BASE + "/" + otherTodo.getId()).contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto("Changed", null, null, null)))
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotFound());
+        assertThat(todoRepository.findById(otherTodo.getId())).get()
+                .extracting(Todo::getTitle)
+                .isEqualTo("Other");
+    }
+
+    @Test
+    void shouldInvalidateOnlyOwnerWhenAdminPatchesOrDeletesTodo() throws Exception {
+        //given
+        statsRepository.recount(USERNAME_1);
+        statsRepository.recount(USERNAME_2);
+
+        //when
+        mockMvc.perform(patch(URL_BASE + "/" + otherTodo.getId()).contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto(null, Todo.Priority.HIGH, null, null)))
+                        .principal(authentication("admin", "ROLE_ADMIN")))
+                .andExpect(status().isNoContent());
+
+        //then
+        assertThat(statsRepository.findByLogin(USERNAME_1)).isPresent();
+        assertThat(statsRepository.findByLogin(USERNAME_2)).isEmpty();
+
+        //when
+        statsRepository.recount(USERNAME_2);
+        mockMvc.perform(delete(URL_BASE + "/" + todo1.getId()).principal(authentication("admin", "ROLE_ADMIN")))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(URL_BASE + "/" + todo1.getId()).principal(authentication("admin", "ROLE_ADMIN")))
+                .andExpect(status().isNotFound());
+
+        //then
+        assertThat(statsRepository.findByLogin(USERNAME_1)).isEmpty();
+        assertThat(statsRepository.findByLogin(USERNAME_2)).isPresent();
+    }
+
+    @Test
+    void shouldPatchOnlyWhenIfMatchHasCurrentVersion() throws Exception {
+        //given
+        String url = URL_BASE + "/" + todo1.getId();
+        String body = convertObjectToJson(new TodoToAddDto("Changed", null, null, null));
+
+        //when + then
+        mockMvc.perform(patch(url).header("If-Match", "\"0\"").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1\""));
+        mockMvc.perform(patch(url).header("If-Match", "\"0\"").contentType(APPLICATION_JSON).content(body)
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch(url).contentType(APPLICATION_JSON).content("{}")
+                        .principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(url).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(jsonPath("$.title").value("Changed"))
+                .andExpect(header().string("ETag", "\"1\""));
+    }
+
+    @Test
+    void shouldAuthorizeAndActWithOneStatementOnSingleTodo() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_BASE + "/" + otherTodo.getId()).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete(URL_BASE + "/" + otherTodo.getId()).principal(authentication(USERNAME_1, "ROLE_USER")))
+                .andExpect(status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        statistics.clear();
+        mockMvc.perform(delete(URL_BASE + "/" + otherTodo.getId()).principal(authentication(USERNAME_2, "ROLE_USER")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(URL_BASE + "/" + todo1.getId()).principal(authentication("admin", "ROLE_ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.login").value(USERNAME_1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(todoRepository.existsById(otherTodo.getId())).isFalse();
+    }
+
+    private static Authentication authentication(String username, String role) {
+        CurrentUser currentUser = CurrentUser.builder().login(username).passwordHash(PASSWORD_HASH).role(role).build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
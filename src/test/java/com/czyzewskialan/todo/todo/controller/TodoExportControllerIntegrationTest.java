@@ -0,0 +1,98 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoExportService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class TodoExportControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_EXPORT = "/todos/export";
+
+    @Autowired
+    private TodoExportService exportService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        User user2 = userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        for (int i = 0; i < 3; i++) {
+            todoRepository.save(Todo.builder().title("Todo " + i).priority(Todo.Priority.MEDIUM).completed(false).user(user1).build());
+        }
+        todoRepository.save(Todo.builder().title("Other").priority(Todo.Priority.LOW).completed(false).user(user2).build());
+        mockMvc = standaloneSetup(new TodoExportController(exportService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldExportOnlyUsersOwnTodosAsOneJsonObjectPerLine() throws Exception {
+        //when
+        List<String> lines = export(authentication(USERNAME_1, "ROLE_USER"));
+
+        //then
+        assertThat(lines)
+                .hasSize(3)
+                .allSatisfy(line -> assertThat(line).startsWith("{\"title\":\"Todo ").contains("\"login\":\"" + USERNAME_1 + "\""));
+    }
+
+    @Test
+    void shouldExportAllTodosForAdmin() throws Exception {
+        //when
+        List<String> lines = export(authentication(USERNAME_2, "ROLE_ADMIN"));
+
+        //then
+        assertThat(lines).hasSize(4);
+    }
+
+    private List<String> export(Authentication auth) throws Exception {
+        MvcResult result = mockMvc.perform(get(URL_EXPORT).principal(auth))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body).endsWith("\n");
+        return body.lines().toList();
+    }
+
+    private static Authentication authentication(String username, String role) {
+        CurrentUser currentUser = CurrentUser.builder().login(username).passwordHash(PASSWORD_HASH).role(role).build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
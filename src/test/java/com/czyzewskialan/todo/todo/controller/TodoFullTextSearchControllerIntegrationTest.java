@@ -0,0 +1,78 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoFullTextSearchService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class TodoFullTextSearchControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_FULL_TEXT = "/search/todos/full-text";
+
+    @Autowired
+    private TodoFullTextSearchService fullTextSearchService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        User user2 = userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        todoRepository.save(Todo.builder().title("Buy milk").description("Two bottles").user(user1).build());
+        todoRepository.save(Todo.builder().title("Buy tickets").user(user2).build());
+        fullTextSearchService.rebuild();
+        mockMvc = standaloneSetup(new TodoFullTextSearchController(fullTextSearchService))
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+        fullTextSearchService.rebuild();
+    }
+
+    @Test
+    void shouldFindOnlyOwnTodosWithHighlights() throws Exception {
+        //when + then
+        mockMvc.perform(get(URL_FULL_TEXT).param("q", "bottle").principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[*].title", contains("Buy milk")))
+                .andExpect(jsonPath("$.content[0].highlights[0].field").value("description"))
+                .andExpect(jsonPath("$.content[0].highlights[0].start").value(4))
+                .andExpect(jsonPath("$.content[0].highlights[0].end").value(11));
+        mockMvc.perform(get(URL_FULL_TEXT).param("q", "tickets").principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    private static Authentication authentication() {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
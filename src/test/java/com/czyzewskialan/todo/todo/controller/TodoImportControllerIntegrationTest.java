@@ -0,0 +1,110 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoImportService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest(properties = "todos.import.batch-size=4")
+class TodoImportControllerIntegrationTest {
+    private static final String USERNAME = "user1";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_IMPORT = "/todos/import";
+
+    @Autowired
+    private TodoImportService importService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(User.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        mockMvc = standaloneSetup(new TodoImportController(importService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldImportValidRowsInBatchesAndReportInvalidOnes() throws Exception {
+        //given
+        String body = """
+                {"title":"Todo 1","priority":"HIGH"}
+                {"title":"Todo 2"}
+                not json
+
+                {"description":"no title"}
+                {"title":"Todo 3","completed":true}
+                """;
+
+        //when + then
+        mockMvc.perform(post(URL_IMPORT).contentType(APPLICATION_NDJSON).content(body).principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors", hasSize(2)))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[1].line").value(5));
+        List<Todo> todos = todoRepository.findAll();
+        assertThat(todos)
+                .extracting(Todo::getTitle)
+                .containsExactlyInAnyOrder("Todo 1", "Todo 2", "Todo 3");
+        assertThat(todos)
+                .allSatisfy(todo -> assertThat(todo.getUser().getLogin()).isEqualTo(USERNAME));
+    }
+
+    @Test
+    void shouldImportOtherRowsOfBatchRejectedByDatabase() throws Exception {
+        //given
+        String body = """
+                {"title":"Todo 1"}
+                {"title":"Todo 2"}
+                {"title":"Todo 3","description":"%s"}
+                {"title":"Todo 4"}
+                {"title":"Todo 5"}
+                """.formatted("x".repeat(256));
+
+        //when + then
+        mockMvc.perform(post(URL_IMPORT).contentType(APPLICATION_NDJSON).content(body).principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(4))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("Row rejected by the database."));
+        assertThat(todoRepository.findAll())
+                .extracting(Todo::getTitle)
+                .containsExactlyInAnyOrder("Todo 1", "Todo 2", "Todo 4", "Todo 5");
+    }
+
+    private static Authentication authentication() {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
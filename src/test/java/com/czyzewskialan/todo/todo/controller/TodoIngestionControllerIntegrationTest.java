@@ -0,0 +1,159 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTicketDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoIngestionService;
+import com.czyzewskialan.todo.todo.service.TodoService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static com.czyzewskialan.todo.TestJsonUtils.convertObjectToJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+@Slf4j
+class TodoIngestionControllerIntegrationTest {
+    private static final String USERNAME = "user1";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_BASE = "/todos";
+    private static final int BENCHMARK_TODOS = 2000;
+    private static final int BENCHMARK_THREADS = 8;
+
+    @Autowired
+    private TodoIngestionService ingestionService;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(User.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        mockMvc = standaloneSetup(new TodoIngestionController(ingestionService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldCreateQueuedTodoAndReportItInTicket() throws Exception {
+        //when
+        mockMvc.perform(post(URL_BASE).param("async", "true").param("durable", "true")
+                        .contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto("Durable", null, null, false)))
+                        .principal(authentication()))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", endsWith("/todos/" + todoRepository.findAll().get(0).getId())))
+                .andExpect(jsonPath("$.status").value("CREATED"));
+        String ticket = ingestionService.submit(new TodoToAddDto("Queued", null, null, false), false, authentication())
+                .ticket();
+
+        //then
+        awaitCreated(List.of(ticket));
+        mockMvc.perform(get(URL_BASE + "/tickets/" + ticket).principal(authentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED"));
+        assertThat(todoRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectTodoWithoutTitle() throws Exception {
+        //when + then
+        mockMvc.perform(post(URL_BASE).param("async", "true")
+                        .contentType(APPLICATION_JSON)
+                        .content(convertObjectToJson(new TodoToAddDto(null, null, null, false)))
+                        .principal(authentication()))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Compares the throughput of concurrent creations with a transaction per todo and with queued todos written in
+     * batches. The numbers are only logged, as they depend on the machine.
+     */
+    @Test
+    void shouldCreateAllTodosOnBothPathsAndLogThroughput() throws Exception {
+        //when
+        double synchronousRate = measure(
+                i -> todoService.create(new TodoToAddDto("Synchronous " + i, null, null, false), authentication()),
+                () -> {
+                });
+        List<String> tickets = new CopyOnWriteArrayList<>();
+        double queuedRate = measure(i -> tickets.add(ingestionService.submit(
+                        new TodoToAddDto("Queued " + i, null, null, false), false, authentication()).ticket()),
+                () -> awaitCreated(tickets));
+
+        //then
+        log.info("Created {} todos with {} threads: {} todos/s synchronously, {} todos/s queued.",
+                BENCHMARK_TODOS, BENCHMARK_THREADS, Math.round(synchronousRate), Math.round(queuedRate));
+        assertThat(todoRepository.count()).isEqualTo(2L * BENCHMARK_TODOS);
+    }
+
+    private double measure(IntConsumer create, Runnable await) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BENCHMARK_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<Void>> futures = executor.invokeAll(IntStream.range(0, BENCHMARK_TODOS)
+                    .mapToObj(i -> (Callable<Void>) () -> {
+                        create.accept(i);
+                        return null;
+                    })
+                    .toList());
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            await.run();
+            return BENCHMARK_TODOS * 1e9 / (System.nanoTime() - start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void awaitCreated(List<String> tickets) {
+        for (String ticket : tickets) {
+            while (ingestionService.getTicket(ticket, authentication()).status() == TodoTicketDto.Status.PENDING) {
+                Thread.onSpinWait();
+            }
+            assertThat(ingestionService.getTicket(ticket, authentication()).status())
+                    .isEqualTo(TodoTicketDto.Status.CREATED);
+        }
+    }
+
+    private static Authentication authentication() {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
@@ -0,0 +1,195 @@
+package com.czyzewskialan.todo.todo.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoOperationDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoStatsDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.persistance.TodoStatsRepository;
+import com.czyzewskialan.todo.todo.service.TodoService;
+import com.czyzewskialan.todo.todo.service.TodoStatsService;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class TodoStatsControllerIntegrationTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_STATS = "/todos/stats";
+
+    @Autowired
+    private TodoStatsService statsService;
+    @SpyBean
+    private TodoStatsRepository statsRepository;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(User.builder().login(USERNAME_1).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        mockMvc = standaloneSetup(new TodoStatsController(statsService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldKeepCountedStatisticsInStepWithCreatedUpdatedAndDeletedTodos() throws Exception {
+        //given
+        TodoDto high = todoService.create(new TodoToAddDto("High", Todo.Priority.HIGH, null, false), authentication(USERNAME_1));
+        assertThat(statsRepository.findByLogin(USERNAME_1)).isEmpty();
+        assertThat(statsService.getStats(authentication(USERNAME_1))).isEqualTo(new TodoStatsDto(1, 0, 1, 0, 0));
+        TodoDto low = todoService.create(new TodoToAddDto("Low", Todo.Priority.LOW, null, false), authentication(USERNAME_1));
+        todoService.create(new TodoToAddDto("Done", null, null, true), authentication(USERNAME_1));
+        statsService.getStats(authentication(USERNAME_2));
+        todoService.create(new TodoToAddDto("Other user's todo", Todo.Priority.HIGH, null, true), authentication(USERNAME_2));
+
+        //when
+        todoService.update(new TodoToAddDto(null, Todo.Priority.MEDIUM, null, true), idOf(high), authentication(USERNAME_1));
+
+        //then
+        assertThat(statsRepository.findByLogin(USERNAME_1)).contains(new TodoStatsDto(3, 2, 0, 1, 1));
+        mockMvc.perform(get(URL_STATS).principal(authentication(USERNAME_1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.completed").value(2))
+                .andExpect(jsonPath("$.highPriority").value(0))
+                .andExpect(jsonPath("$.mediumPriority").value(1))
+                .andExpect(jsonPath("$.lowPriority").value(1));
+
+        //when
+        todoService.delete(idOf(low), authentication(USERNAME_1));
+
+        //then
+        assertThat(statsRepository.findByLogin(USERNAME_1)).isEmpty();
+        assertThat(statsService.getStats(authentication(USERNAME_1))).isEqualTo(new TodoStatsDto(2, 2, 0, 1, 0));
+        assertThat(statsRepository.findByLogin(USERNAME_1)).contains(new TodoStatsDto(2, 2, 0, 1, 0));
+        assertThat(statsRepository.findByLogin(USERNAME_2)).contains(new TodoStatsDto(1, 1, 1, 0, 0));
+    }
+
+    @Test
+    void shouldRecountStatisticsMarkedDirtyByPatch() {
+        //given
+        TodoDto todo = todoService.create(new TodoToAddDto("Todo", Todo.Priority.LOW, null, false), authentication(USERNAME_1));
+        statsService.getStats(authentication(USERNAME_1));
+
+        //when
+        todoService.patch(new TodoToAddDto(null, Todo.Priority.HIGH, null, null), idOf(todo), null, authentication(USERNAME_1));
+
+        //then
+        assertThat(statsRepository.findByLogin(USERNAME_1)).isEmpty();
+        assertThat(statsService.getStats(authentication(USERNAME_1))).isEqualTo(new TodoStatsDto(1, 0, 1, 0, 0));
+    }
+
+    @Test
+    void shouldRepairAndReportDriftedStatistics() {
+        //given
+        todoService.create(new TodoToAddDto("Todo", Todo.Priority.LOW, null, false), authentication(USERNAME_1));
+        todoService.create(new TodoToAddDto("Todo", Todo.Priority.LOW, null, false), authentication(USERNAME_2));
+        statsService.reconcile();
+        jdbcTemplate.update("update todo_stats set total = 5, completed = 1 where username = ?", USERNAME_1);
+
+        //when
+        int drifted = statsService.reconcile();
+
+        //then
+        assertThat(drifted).isEqualTo(1);
+        assertThat(statsRepository.findByLogin(USERNAME_1)).contains(new TodoStatsDto(1, 0, 0, 0, 1));
+        assertThat(statsService.reconcile()).isZero();
+    }
+
+    @Test
+    void shouldAddDifferencesOfTransactionOncePerUser() {
+        //given
+        todoService.create(new TodoToAddDto("First", Todo.Priority.LOW, null, false), authentication(USERNAME_1));
+        statsService.getStats(authentication(USERNAME_1));
+        clearInvocations(statsRepository);
+
+        //when
+        todoService.batch(List.of(
+                new TodoOperationDto(TodoOperationDto.Type.CREATE, null, new TodoToAddDto("Second", Todo.Priority.HIGH, null, false)),
+                new TodoOperationDto(TodoOperationDto.Type.CREATE, null, new TodoToAddDto("Third", null, null, true)),
+                new TodoOperationDto(TodoOperationDto.Type.CREATE, null, new TodoToAddDto("Fourth", Todo.Priority.HIGH, null, false))),
+                authentication(USERNAME_1));
+
+        //then
+        verify(statsRepository, times(1)).add(eq(USERNAME_1), any(TodoStatsDto.class));
+        assertThat(statsRepository.findByLogin(USERNAME_1)).contains(new TodoStatsDto(4, 1, 2, 0, 1));
+    }
+
+    @Test
+    void shouldCountConcurrentFirstTodosOfUser() throws Exception {
+        //given
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //when
+        try {
+            List<Future<TodoDto>> created = executor.invokeAll(List.of(
+                    () -> todoService.create(new TodoToAddDto("First", null, null, false), authentication(USERNAME_1)),
+                    () -> todoService.create(new TodoToAddDto("Second", null, null, false), authentication(USERNAME_1)),
+                    () -> todoService.create(new TodoToAddDto("Third", null, null, false), authentication(USERNAME_1)),
+                    () -> todoService.create(new TodoToAddDto("Fourth", null, null, false), authentication(USERNAME_1))));
+            for (Future<TodoDto> todo : created) {
+                todo.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //then
+        assertThat(statsService.getStats(authentication(USERNAME_1))).isEqualTo(new TodoStatsDto(4, 0, 0, 0, 0));
+    }
+
+    private Long idOf(TodoDto todo) {
+        return todoRepository.findAll().stream()
+                .filter(candidate -> candidate.getTitle().equals(todo.title()))
+                .findFirst()
+                .map(Todo::getId)
+                .orElseThrow();
+    }
+
+    private static Authentication authentication(String login) {
+        CurrentUser currentUser = CurrentUser.builder().login(login).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
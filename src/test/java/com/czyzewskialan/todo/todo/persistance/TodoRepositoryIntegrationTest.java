@@ -0,0 +1,98 @@
+package com.czyzewskialan.todo.todo.persistance;
+
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Optional;
+
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.hasId;
+import static com.czyzewskialan.todo.todo.persistance.TodoSpecifications.ownedBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+@SpringBootTest
+class TodoRepositoryIntegrationTest {
+    private static final int USERS = 5;
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final Sort SORT = Sort.by("title");
+
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            User user = userRepository.save(User.builder().login("user" + i).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+            for (int j = 0; j < 2; j++) {
+                todoRepository.save(Todo.builder().title("Todo " + i + j).priority(Todo.Priority.MEDIUM).user(user).build());
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldLoadTodosOfManyOwnersByIdWithOneSelect() {
+        //given
+        List<Long> ids = todoRepository.findAll().stream().map(Todo::getId).toList();
+        statistics.clear();
+
+        //when
+        List<Todo> todos = todoRepository.findAllById(ids);
+
+        //then
+        assertThat(todos).hasSize(2 * USERS).extracting(todo -> todo.getUser().getLogin()).doesNotContainNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLoadAccessibleTodoWithItsOwnerInOneSelect() {
+        //given
+        Long id = todoRepository.findAll().get(0).getId();
+        statistics.clear();
+
+        //when
+        Optional<Todo> todo = todoRepository.findOne(where(hasId(id)).and(ownedBy("user0")));
+
+        //then
+        assertThat(todo).map(found -> found.getUser().getLogin()).contains("user0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 5, 9})
+    void shouldScrollTodosOfManyOwnersWithOneSelect(int pageSize) {
+        //when
+        Slice<Todo> slice = todoRepository.findSlice(null, PageRequest.of(0, pageSize, SORT));
+
+        //then
+        assertThat(slice.getContent()).extracting(todo -> todo.getUser().getLogin()).doesNotContainNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.czyzewskialan.todo.todo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferTest {
+
+    @Test
+    void shouldReturnElementsInOrderAndRejectWhenFull() {
+        //given
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        IntStream.range(0, 4).forEach(i -> assertThat(buffer.offer(i)).isTrue());
+
+        //when
+        boolean accepted = buffer.offer(4);
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 10);
+
+        //then
+        assertThat(accepted).isFalse();
+        assertThat(drained).containsExactly(0, 1, 2, 3);
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.offer(5)).isTrue();
+        assertThat(buffer.poll()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldNotLoseElementsOfConcurrentProducers() throws InterruptedException {
+        //given
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        int elements = 40_000;
+        Set<Integer> consumed = new HashSet<>();
+
+        //when
+        IntStream.range(0, 4).forEach(producer -> producers.execute(() -> {
+            for (int i = producer; i < elements; i += 4) {
+                while (!buffer.offer(i)) {
+                    Thread.onSpinWait();
+                }
+            }
+        }));
+        while (consumed.size() < elements) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                assertThat(consumed.add(element)).isTrue();
+            }
+        }
+        producers.shutdown();
+
+        //then
+        assertThat(producers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(consumed).hasSize(elements);
+        assertThat(buffer.size()).isZero();
+    }
+}
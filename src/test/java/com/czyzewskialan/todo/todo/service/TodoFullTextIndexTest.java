@@ -0,0 +1,172 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoHighlightDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoSearchHitDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTextDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoFullTextIndexTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final PageRequest PAGE_REQUEST = PageRequest.of(0, 10);
+
+    private TodoFullTextIndex fullTextIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fullTextIndex = new TodoFullTextIndex("", Duration.ofMillis(50));
+        fullTextIndex.replaceAll(Stream.of(
+                new TodoTextDto(1L, USERNAME_1, "Buy milk", "Two bottles from the shop"),
+                new TodoTextDto(2L, USERNAME_1, "Clean the kitchen", "Do not forget to buy a sponge"),
+                new TodoTextDto(3L, USERNAME_1, "Call mom", null),
+                new TodoTextDto(4L, USERNAME_2, "Buy tickets", null)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fullTextIndex.close();
+    }
+
+    @Test
+    void shouldRankTitleMatchesAboveDescriptionMatches() {
+        //when
+        Page<TodoSearchHitDto> hits = fullTextIndex.search("buy", USERNAME_1, PAGE_REQUEST);
+
+        //then
+        assertThat(hits.getTotalElements()).isEqualTo(2);
+        assertThat(hits.getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldMatchStemmedWordsAndReportHighlights() {
+        //when
+        Page<TodoSearchHitDto> hits = fullTextIndex.search("bottle shopping", USERNAME_1, PAGE_REQUEST);
+
+        //then
+        assertThat(hits.getContent()).hasSize(1);
+        assertThat(hits.getContent().get(0).highlights()).containsExactly(
+                new TodoHighlightDto("description", 4, 11), new TodoHighlightDto("description", 21, 25));
+    }
+
+    @Test
+    void shouldSearchAllUsersWhenNoLoginIsGiven() {
+        //when + then
+        assertThat(fullTextIndex.search("buy", null, PAGE_REQUEST).getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactlyInAnyOrder(1L, 2L, 4L);
+    }
+
+    @Test
+    void shouldSupportNegationAndPhrases() {
+        //when + then
+        assertThat(fullTextIndex.search("buy -milk", USERNAME_1, PAGE_REQUEST).getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactly(2L);
+        assertThat(fullTextIndex.search("\"buy a sponge\"", USERNAME_1, PAGE_REQUEST).getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void shouldPageResults() {
+        //when
+        Page<TodoSearchHitDto> hits = fullTextIndex.search("buy", USERNAME_1, PageRequest.of(1, 1));
+
+        //then
+        assertThat(hits.getTotalElements()).isEqualTo(2);
+        assertThat(hits.getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void shouldMakeWritesSearchableWithinStaleness() throws Exception {
+        //when
+        fullTextIndex.put(new TodoTextDto(1L, USERNAME_1, "Buy bread", null));
+        fullTextIndex.put(new TodoTextDto(5L, USERNAME_1, "Water the flowers", null));
+        fullTextIndex.remove(USERNAME_1, 3L);
+
+        //then
+        assertEventually(() -> ids("milk").isEmpty() && ids("flower").equals(List.of(5L)) && ids("mom").isEmpty());
+    }
+
+    @Test
+    void shouldReplaceTodosOfOneUser() throws Exception {
+        //when
+        fullTextIndex.replaceUser(USERNAME_1, Stream.of(new TodoTextDto(6L, USERNAME_1, "Buy flowers", null)));
+
+        //then
+        assertEventually(() -> ids("buy").equals(List.of(6L)));
+        assertThat(fullTextIndex.search("buy", USERNAME_2, PAGE_REQUEST).getContent()).hasSize(1);
+    }
+
+    @Test
+    void shouldTrackStaleUsersUntilTheyAreReindexed() {
+        //when
+        fullTextIndex.invalidate(USERNAME_1);
+
+        //then
+        assertThat(fullTextIndex.isStale(USERNAME_1)).isTrue();
+        assertThat(fullTextIndex.isStale(USERNAME_2)).isFalse();
+        assertThat(fullTextIndex.getStaleUsers()).containsExactly(USERNAME_1);
+        fullTextIndex.replaceUser(USERNAME_1, Stream.empty());
+        assertThat(fullTextIndex.getStaleUsers()).isEmpty();
+    }
+
+    @Test
+    void shouldNotDuplicateTodoWrittenWhileItsUserIsReindexed() throws Exception {
+        //given
+        TodoTextDto changed = new TodoTextDto(1L, USERNAME_1, "Buy oat milk", null);
+
+        //when
+        fullTextIndex.replaceUser(USERNAME_1, Stream.of(changed).peek(todo -> fullTextIndex.put(changed)));
+
+        //then
+        assertEventually(() -> ids("milk").equals(List.of(1L)));
+    }
+
+    @Test
+    void shouldKeepTodosSearchableDuringRebuildAndMarkUsersWrittenMeanwhileAsStale() {
+        //when
+        fullTextIndex.replaceAll(Stream.of(
+                        new TodoTextDto(1L, USERNAME_1, "Buy milk", null),
+                        new TodoTextDto(4L, USERNAME_2, "Buy tickets", null))
+                .peek(todo -> {
+                    if (todo.id() == 4L) {
+                        assertThat(fullTextIndex.search("buy", null, PAGE_REQUEST).getTotalElements()).isEqualTo(3);
+                        fullTextIndex.put(new TodoTextDto(7L, USERNAME_2, "Buy a present", null));
+                    }
+                }));
+
+        //then
+        assertThat(fullTextIndex.search("buy", null, PAGE_REQUEST).getContent())
+                .extracting(TodoSearchHitDto::id)
+                .containsExactlyInAnyOrder(1L, 4L, 7L);
+        assertThat(fullTextIndex.getStaleUsers()).containsExactly(USERNAME_2);
+    }
+
+    private List<Long> ids(String query) {
+        return fullTextIndex.search(query, USERNAME_1, PAGE_REQUEST).map(TodoSearchHitDto::id).getContent();
+    }
+
+    private static void assertEventually(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.get()).isTrue();
+    }
+}
@@ -0,0 +1,160 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoTicketDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAdd2TodoConverter;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class TodoIngestionServiceTest {
+    private static final String USERNAME = "user1";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final int BUFFER_CAPACITY = 2;
+    private static final String REJECTED_TITLE = "Rejected";
+
+    private AutoCloseable autoCloseable;
+    @Mock
+    private TodoRepository todoRepository;
+    @Mock
+    private UserService userService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private final CountDownLatch writesAllowed = new CountDownLatch(1);
+    private final AtomicLong ids = new AtomicLong();
+    private TodoIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = openMocks(this);
+        when(userService.getLoggedInUser(any(Authentication.class)))
+                .thenReturn(User.builder().login(USERNAME).build());
+        doAnswer(invocation -> {
+            writesAllowed.await(10, TimeUnit.SECONDS);
+            List<Todo> todos = invocation.getArgument(0);
+            if (todos.stream().anyMatch(todo -> REJECTED_TITLE.equals(todo.getTitle()))) {
+                throw new DataIntegrityViolationException(REJECTED_TITLE);
+            }
+            todos.forEach(todo -> todo.setId(ids.incrementAndGet()));
+            return null;
+        }).when(todoRepository).persistBatch(anyList());
+        ingestionService = new TodoIngestionService(todoRepository, userService, new TodoToAdd2TodoConverter(),
+                transactionManager, BUFFER_CAPACITY, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 100,
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writesAllowed.countDown();
+        ingestionService.close();
+        autoCloseable.close();
+    }
+
+    @Test
+    void shouldRejectTodosWhenBufferIsFullAndWriteQueuedOnesInOneBatch() {
+        //given
+        TodoTicketDto first = ingestionService.submit(todo("First"), false, authentication(USERNAME));
+        verify(todoRepository, timeout(5000)).persistBatch(anyList());
+        TodoTicketDto second = ingestionService.submit(todo("Second"), false, authentication(USERNAME));
+        TodoTicketDto third = ingestionService.submit(todo("Third"), false, authentication(USERNAME));
+
+        //when + then
+        assertThrows(TodoIngestionRejectedException.class,
+                () -> ingestionService.submit(todo("Fourth"), false, authentication(USERNAME)));
+        assertThat(ingestionService.getTicket(second.ticket(), authentication(USERNAME)).status())
+                .isEqualTo(TodoTicketDto.Status.PENDING);
+
+        //when
+        writesAllowed.countDown();
+
+        //then
+        verify(todoRepository, timeout(5000).times(2)).persistBatch(anyList());
+        TodoTicketDto durable = ingestionService.submit(todo("Durable"), true, authentication(USERNAME));
+        assertThat(durable.status()).isEqualTo(TodoTicketDto.Status.CREATED);
+        assertThat(durable.id()).isEqualTo(4);
+        assertThat(ingestionService.getTicket(first.ticket(), authentication(USERNAME)).id()).isEqualTo(1);
+        assertThat(ingestionService.getTicket(third.ticket(), authentication(USERNAME)).status())
+                .isEqualTo(TodoTicketDto.Status.CREATED);
+        verify(todoRepository, times(3)).persistBatch(anyList());
+    }
+
+    @Test
+    void shouldFailOnlyTicketOfTodoRejectedByDatabase() {
+        //given
+        ingestionService.submit(todo("First"), false, authentication(USERNAME));
+        verify(todoRepository, timeout(5000)).persistBatch(anyList());
+        TodoTicketDto accepted = ingestionService.submit(todo("Accepted"), false, authentication(USERNAME));
+        TodoTicketDto rejected = ingestionService.submit(todo(REJECTED_TITLE), false, authentication(USERNAME));
+
+        //when
+        writesAllowed.countDown();
+
+        //then
+        verify(todoRepository, timeout(5000).times(4)).persistBatch(anyList());
+        TodoTicketDto durable = ingestionService.submit(todo("Durable"), true, authentication(USERNAME));
+        assertThat(durable.status()).isEqualTo(TodoTicketDto.Status.CREATED);
+        assertThat(ingestionService.getTicket(accepted.ticket(), authentication(USERNAME)).status())
+                .isEqualTo(TodoTicketDto.Status.CREATED);
+        assertThat(ingestionService.getTicket(rejected.ticket(), authentication(USERNAME)))
+                .extracting(TodoTicketDto::status, TodoTicketDto::id)
+                .containsExactly(TodoTicketDto.Status.FAILED, null);
+        assertThat(ingestionService.getTicket(rejected.ticket(), authentication(USERNAME)).error())
+                .isEqualTo(TodoIngestionService.MESSAGE_TODO_REJECTED);
+    }
+
+    @Test
+    void shouldNotShowTicketToOtherUser() {
+        //given
+        writesAllowed.countDown();
+        TodoTicketDto ticket = ingestionService.submit(todo("Todo"), true, authentication(USERNAME));
+
+        //when + then
+        assertThrows(EntityNotFoundException.class,
+                () -> ingestionService.getTicket(ticket.ticket(), authentication("user2")));
+    }
+
+    @Test
+    void shouldRejectTodoWithoutTitle() {
+        //when + then
+        assertThrows(InvalidTodoRequestException.class,
+                () -> ingestionService.submit(todo(null), false, authentication(USERNAME)));
+    }
+
+    private static TodoToAddDto todo(String title) {
+        return new TodoToAddDto(title, null, null, false);
+    }
+
+    private static Authentication authentication(String login) {
+        CurrentUser currentUser = CurrentUser.builder().login(login).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
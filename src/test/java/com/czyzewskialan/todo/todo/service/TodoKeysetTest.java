@@ -0,0 +1,69 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.domain.Todo;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TodoKeysetTest {
+
+    @Test
+    void shouldEncodeLastSeenKeyAndIdInNextCursor() {
+        //given
+        LocalDateTime dateCreated = LocalDateTime.of(2022, 6, 1, 12, 30);
+        Todo last = Todo.builder().id(7L).title("Todo, with comma").dateCreated(dateCreated).build();
+        TodoKeyset keyset = TodoKeyset.first(Sort.by(Sort.Direction.DESC, "dateCreated"));
+        Slice<Todo> slice = new SliceImpl<>(List.of(last), PageRequest.of(0, 1), true);
+
+        //when
+        TodoKeyset next = TodoKeyset.decode(keyset.nextCursor(slice));
+
+        //then
+        assertThat(next).isEqualTo(new TodoKeyset(TodoKeyset.Key.DATE_CREATED, Sort.Direction.DESC, dateCreated, 7L));
+        assertThat(next.sort()).isEqualTo(Sort.by(Sort.Direction.DESC, "dateCreated", "id"));
+    }
+
+    @Test
+    void shouldKeepCommasInTitleCursor() {
+        //given
+        TodoKeyset keyset = new TodoKeyset(TodoKeyset.Key.TITLE, Sort.Direction.ASC, "a,b,c", 3L);
+
+        //when + then
+        assertThat(TodoKeyset.decode(keyset.encode())).isEqualTo(keyset);
+    }
+
+    @Test
+    void shouldNotReturnCursorForLastSlice() {
+        //given
+        TodoKeyset keyset = TodoKeyset.first(Sort.unsorted());
+        Slice<Todo> slice = new SliceImpl<>(List.of(Todo.builder().id(1L).build()), PageRequest.of(0, 1), false);
+
+        //when + then
+        assertThat(keyset.nextCursor(slice)).isNull();
+        assertThat(keyset.toSpecification()).isNull();
+    }
+
+    @Test
+    void shouldRejectUnsupportedSortProperty() {
+        //when + then
+        assertThrows(InvalidCursorException.class,
+                () -> TodoKeyset.first(Sort.by("description")));
+        assertThrows(InvalidCursorException.class,
+                () -> TodoKeyset.first(Sort.by("title", "priority")));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        //when + then
+        assertThrows(InvalidCursorException.class,
+                () -> TodoKeyset.decode("not a cursor"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoResultCacheTest {
+    private static final String USERNAME_1 = "user1";
+    private static final String USERNAME_2 = "user2";
+    private static final List<Object> QUERY = List.of("findAll", 0);
+
+    private MeterRegistry meterRegistry;
+    private TodoResultCache resultCache;
+    private AtomicInteger loads;
+    private Supplier<Integer> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        resultCache = new TodoResultCache(100, meterRegistry);
+        loads = new AtomicInteger();
+        loader = loads::incrementAndGet;
+    }
+
+    @Test
+    void shouldLoadTheSameQueryOnlyOnce() {
+        //when
+        resultCache.get(USERNAME_1, QUERY, loader);
+        Integer result = resultCache.get(USERNAME_1, QUERY, loader);
+
+        //then
+        assertThat(result).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", TodoResultCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepResultsOfDifferentUsersAndQueriesApart() {
+        //when
+        resultCache.get(USERNAME_1, QUERY, loader);
+        resultCache.get(USERNAME_2, QUERY, loader);
+        resultCache.get(null, QUERY, loader);
+        resultCache.get(USERNAME_1, List.of("findAll", 1), loader);
+
+        //then
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void shouldReloadOnlyResultsAffectedByUsersWrite() {
+        //given
+        resultCache.get(USERNAME_1, QUERY, loader);
+        resultCache.get(USERNAME_2, QUERY, loader);
+        resultCache.get(null, QUERY, loader);
+
+        //when
+        resultCache.invalidate(USERNAME_1);
+
+        //then
+        assertThat(resultCache.get(USERNAME_1, QUERY, loader)).isEqualTo(4);
+        assertThat(resultCache.get(USERNAME_2, QUERY, loader)).isEqualTo(2);
+        assertThat(resultCache.get(null, QUERY, loader)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldReloadResultsWithUserAfterUserChanged() {
+        //given
+        resultCache.get(USERNAME_1, QUERY, loader);
+        resultCache.get(USERNAME_2, QUERY, loader);
+        resultCache.get(null, QUERY, loader);
+
+        //when
+        resultCache.onCredentialsChanged(new UserCredentialsChangedEvent(USERNAME_1));
+
+        //then
+        assertThat(resultCache.get(USERNAME_1, QUERY, loader)).isEqualTo(4);
+        assertThat(resultCache.get(USERNAME_2, QUERY, loader)).isEqualTo(2);
+        assertThat(resultCache.get(null, QUERY, loader)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldReloadAllResultsAfterWriteOfManyUsers() {
+        //given
+        resultCache.get(USERNAME_1, QUERY, loader);
+        resultCache.get(null, QUERY, loader);
+
+        //when
+        resultCache.invalidateAll();
+
+        //then
+        assertThat(resultCache.get(USERNAME_1, QUERY, loader)).isEqualTo(3);
+        assertThat(resultCache.get(null, QUERY, loader)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldEvictEntriesAboveMaximumSize() {
+        //given
+        resultCache = new TodoResultCache(1, new SimpleMeterRegistry());
+        resultCache.get(USERNAME_1, QUERY, loader);
+        resultCache.get(USERNAME_2, QUERY, loader);
+
+        //when
+        resultCache.get(USERNAME_1, QUERY, loader);
+
+        //then
+        assertThat(loads).hasValue(3);
+    }
+}
@@ -10,18 +10,27 @@ import com.czyzewskialan.todo.todo.persistance.TodoRepository;
 import com.czyzewskialan.todo.user.controller.dto.User2UserDtoConverter;
 import com.czyzewskialan.todo.user.domain.User;
 import com.czyzewskialan.todo.user.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -56,6 +65,8 @@ class TodoServiceTest {
     private Authentication authentication;
     @Mock
     private Pageable pageable;
+    @Mock
+    private TodoBulkChanges bulkChanges;
     @Captor
     ArgumentCaptor<Todo> todoArgumentCaptor;
 
@@ -63,7 +74,8 @@ class TodoServiceTest {
     void setUp() {
         autoCloseable = openMocks(this);
         Todo2TodoDtoConverter todo2TodoDtoConverter = new Todo2TodoDtoConverter(new User2UserDtoConverter());
-        todoService = new TodoService(todoRepository, userService, todo2TodoDtoConverter, new TodoToAdd2TodoConverter());
+        todoService = new TodoService(todoRepository, userService, todo2TodoDtoConverter, new TodoToAdd2TodoConverter(),
+                new TodoResultCache(100, new SimpleMeterRegistry()), bulkChanges);
     }
 
     @AfterEach
@@ -76,18 +88,17 @@ class TodoServiceTest {
         //given
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
-        when(userService.getLoggedInUser(authentication))
-                .thenReturn(USER_PLAIN);
-        when(todoRepository.findByUser(eq(USER_PLAIN), any()))
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findAllDtos(any(), eq(pageable)))
                 .thenReturn(new PageImpl<>(newArrayList()));
 
         //when
         todoService.findAll(pageable, authentication);
 
         //then
-        verify(todoRepository, never()).findAll(any(Pageable.class));
-        verify(userService).getLoggedInUser(authentication);
-        verify(todoRepository).findByUser(eq(USER_PLAIN), any(Pageable.class));
+        verify(userService, never()).getLoggedInUser(authentication);
+        verify(todoRepository).findAllDtos(notNull(), eq(pageable));
     }
 
     @Test
@@ -95,16 +106,15 @@ class TodoServiceTest {
         //given
         doReturn(newArrayList(AUTHORITY_ADMIN))
                 .when(authentication).getAuthorities();
-        when(todoRepository.findAll(pageable))
+        when(todoRepository.findAllDtos(any(), eq(pageable)))
                 .thenReturn(new PageImpl<>(newArrayList()));
 
         //when
         todoService.findAll(pageable, authentication);
 
         //then
-        verify(todoRepository).findAll(pageable);
+        verify(todoRepository).findAllDtos(isNull(), eq(pageable));
         verify(userService, never()).getLoggedInUser(any(Authentication.class));
-        verify(todoRepository, never()).findByUser(any(User.class), any(Pageable.class));
     }
 
     @Test
@@ -136,85 +146,95 @@ class TodoServiceTest {
     @Test
     void shouldThrowEntityNotFoundExceptionWhenUserTriesToGetNonexistentTodo() {
         //given
-        when(todoRepository.findById(TODO_ID))
+        doReturn(newArrayList(AUTHORITY_USER))
+                .when(authentication).getAuthorities();
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findDto(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
                 .thenReturn(Optional.empty());
 
         //when + then
         assertThrows(EntityNotFoundException.class,
                 () -> todoService.getOne(TODO_ID, authentication));
+        verify(todoRepository).findDto(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
+        verify(todoRepository, never()).findById(anyLong());
     }
 
     @Test
     void shouldThrowEntityNotFoundExceptionWhenUserTriesToGetOtherUsersTodo() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_ADMIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
+        TodoDto todo = new TodoDto(TITLE, null, null, false, null, null, 0L, null);
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findDto(accessibleBy(TODO_ID, null)))
+                .thenReturn(Optional.of(todo));
+        when(todoRepository.findDto(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(Optional.empty());
 
         //when + then
         assertThrows(EntityNotFoundException.class,
                 () -> todoService.getOne(TODO_ID, authentication));
+        verify(todoRepository).findDto(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
     }
 
     @Test
     void shouldReturnTodoWhenTheUserTriesToGetExistingTodoAssignedToThem() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_PLAIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
+        TodoDto todo = new TodoDto(TITLE, null, null, false, null, null, 0L, null);
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findDto(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(Optional.of(todo));
 
         //when
         TodoDto todoDto = todoService.getOne(TODO_ID, authentication);
 
         //then
-        assertThat(todoDto.user().login()).isEqualTo(USERNAME_PLAIN_USER);
-        assertThat(todoDto.title()).isEqualTo(TITLE);
+        assertThat(todoDto).isEqualTo(todo);
     }
 
     @Test
     void shouldReturnTodoWhenTheAdminTriesToGetExistingTodoAssignedToOtherUser() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_PLAIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
+        TodoDto todo = new TodoDto(TITLE, null, null, false, null, null, 0L, null);
         doReturn(newArrayList(AUTHORITY_ADMIN))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_ADMIN);
+        when(todoRepository.findDto(accessibleBy(TODO_ID, null)))
+                .thenReturn(Optional.of(todo));
 
         //when
         TodoDto todoDto = todoService.getOne(TODO_ID, authentication);
 
         //then
-        assertThat(todoDto.user().login()).isEqualTo(USERNAME_PLAIN_USER);
-        assertThat(todoDto.title()).isEqualTo(TITLE);
+        assertThat(todoDto).isEqualTo(todo);
     }
 
     @Test
     void shouldCreateNewTodoWhenTheUserTriesToUpdateNonexistentTodo() {
         //given
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.empty());
         TodoToAddDto todoToUpdate = new TodoToAddDto(NEW_TITLE, Todo.Priority.MEDIUM, DESCRIPTION, false);
-
-        when(userService.getLoggedInUser(any(Authentication.class)))
+        doReturn(newArrayList(AUTHORITY_USER))
+                .when(authentication).getAuthorities();
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(Optional.empty());
+        when(userService.getLoggedInUser(authentication))
                 .thenReturn(USER_PLAIN);
         when(todoRepository.save(any(Todo.class)))
                 .thenReturn(Todo.builder().id(TODO_ID).user(USER_PLAIN).build());
 
         //when
-        todoService.update(todoToUpdate,TODO_ID, authentication);
+        todoService.update(todoToUpdate, TODO_ID, authentication);
 
         //then
-        verify(todoRepository).findById(TODO_ID);
+        verify(todoRepository).findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
         verify(userService).getLoggedInUser(authentication);
         verify(todoRepository).save(any(Todo.class));
     }
@@ -223,26 +243,46 @@ class TodoServiceTest {
     void shouldCreateNewTodoWhenTheUserTriesToUpdateTodoAssignedToOtherUser() {
         //given
         TodoToAddDto todoToUpdate = new TodoToAddDto(TITLE, Todo.Priority.MEDIUM, DESCRIPTION, false);
-        Todo todoOtherUser = Todo.builder().title(TITLE).user(USER_ADMIN).build();
-
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todoOtherUser));
+        Todo todoOtherUser = Todo.builder().id(TODO_ID).title(TITLE).user(USER_ADMIN).build();
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_PLAIN_USER);
-        when(userService.getLoggedInUser(any(Authentication.class)))
+        when(todoRepository.findOne(accessibleBy(TODO_ID, null)))
+                .thenReturn(Optional.of(todoOtherUser));
+        when(todoRepository.findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(Optional.empty());
+        when(userService.getLoggedInUser(authentication))
                 .thenReturn(USER_PLAIN);
         when(todoRepository.save(any(Todo.class)))
-                .thenReturn(Todo.builder().id(TODO_ID).user(USER_PLAIN).build());
+                .thenReturn(Todo.builder().id(TODO_ID + 1).user(USER_PLAIN).build());
 
         //when
         todoService.update(todoToUpdate, TODO_ID, authentication);
 
         //then
-        verify(todoRepository).findById(TODO_ID);
-        verify(userService).getLoggedInUser(authentication);
-        verify(todoRepository).save(any(Todo.class));
+        verify(todoRepository).findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
+        verify(todoRepository).save(todoArgumentCaptor.capture());
+        Todo todoRightBeforeSaving = todoArgumentCaptor.getValue();
+        assertThat(todoRightBeforeSaving).isNotSameAs(todoOtherUser);
+        assertThat(todoRightBeforeSaving.getUser()).isEqualTo(USER_PLAIN);
+    }
+
+    @Test
+    void shouldThrowOptimisticLockingFailureExceptionWhenTheUserUpdatesAnyVersionOfInaccessibleTodo() {
+        //given
+        TodoToAddDto todoToUpdate = new TodoToAddDto(NEW_TITLE, Todo.Priority.MEDIUM, DESCRIPTION, false);
+        doReturn(newArrayList(AUTHORITY_USER))
+                .when(authentication).getAuthorities();
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(Optional.empty());
+
+        //when + then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> todoService.update(todoToUpdate, TODO_ID, ExpectedVersion.ANY, authentication));
+        verify(todoRepository, never()).save(any(Todo.class));
     }
 
     @Test
@@ -252,7 +292,7 @@ class TodoServiceTest {
         Todo todoBeforeUpdate = Todo.builder().id(TODO_ID).title(TITLE).priority(Todo.Priority.MEDIUM)
                 .description(DESCRIPTION).completed(false).user(USER_PLAIN).build();
 
-        when(todoRepository.findById(TODO_ID))
+        when(todoRepository.findOne(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
                 .thenReturn(Optional.of(todoBeforeUpdate));
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
@@ -265,7 +305,6 @@ class TodoServiceTest {
         todoService.update(todoToUpdate, TODO_ID, authentication);
 
         //then
-        verify(todoRepository).findById(TODO_ID);
         verify(userService, never()).getLoggedInUser(authentication);
         verify(todoRepository).save(todoArgumentCaptor.capture());
         Todo todoRightBeforeUpdate = todoArgumentCaptor.getValue();
@@ -282,14 +321,12 @@ class TodoServiceTest {
         TodoToAddDto todoToUpdate = new TodoToAddDto(null, Todo.Priority.HIGH, DESCRIPTION, null);
         Todo todoOtherUser = Todo.builder().title(TITLE).user(USER_PLAIN).build();
 
-        when(todoRepository.findById(TODO_ID))
+        when(todoRepository.findOne(accessibleBy(TODO_ID, null)))
                 .thenReturn(Optional.of(todoOtherUser));
         doReturn(newArrayList(AUTHORITY_ADMIN))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_ADMIN);
-        when(userService.getLoggedInUser(any(Authentication.class)))
-                .thenReturn(USER_ADMIN);
         when(todoRepository.save(any(Todo.class)))
                 .thenReturn(Todo.builder().id(TODO_ID).user(USER_PLAIN).build());
 
@@ -297,7 +334,6 @@ class TodoServiceTest {
         todoService.update(todoToUpdate, TODO_ID, authentication);
 
         //then
-        verify(todoRepository).findById(TODO_ID);
         verify(userService, never()).getLoggedInUser(authentication);
         verify(todoRepository).save(todoArgumentCaptor.capture());
         Todo todoRightBeforeUpdate = todoArgumentCaptor.getValue();
@@ -311,65 +347,127 @@ class TodoServiceTest {
     @Test
     void shouldThrowEntityNotFoundExceptionWhenTheUserTriesToDeleteNonexistentTodo() {
         //given
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.empty());
+        doReturn(newArrayList(AUTHORITY_USER))
+                .when(authentication).getAuthorities();
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.bulkDelete(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(0);
 
         //when + then
         assertThrows(EntityNotFoundException.class,
                 () -> todoService.delete(TODO_ID, authentication));
-        verify(todoRepository, never()).deleteById(anyLong());
+        verify(todoRepository).bulkDelete(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
+        verify(bulkChanges, never()).deleted(any(), any());
     }
 
     @Test
     void shouldThrowEntityNotFoundExceptionWhenTheUserTriesToDeleteTodoAssignedToOtherUser() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_ADMIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.bulkDelete(accessibleBy(TODO_ID, null)))
+                .thenReturn(1);
+        when(todoRepository.bulkDelete(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(0);
 
         //when + then
         assertThrows(EntityNotFoundException.class,
                 () -> todoService.delete(TODO_ID, authentication));
-        verify(todoRepository, never()).deleteById(anyLong());
+        verify(todoRepository).bulkDelete(accessibleBy(TODO_ID, USERNAME_PLAIN_USER));
+        verify(bulkChanges, never()).deleted(any(), any());
     }
 
     @Test
     void shouldDeleteTodoWhenTheUserTriesToDeleteTodoAssignedToThem() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_PLAIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
         doReturn(newArrayList(AUTHORITY_USER))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_PLAIN_USER);
+        when(todoRepository.bulkDelete(accessibleBy(TODO_ID, USERNAME_PLAIN_USER)))
+                .thenReturn(1);
 
         //when
         todoService.delete(TODO_ID, authentication);
 
         //then
-        verify(todoRepository).deleteById(TODO_ID);
+        verify(todoRepository, never()).findById(anyLong());
+        verify(bulkChanges).deleted(USERNAME_PLAIN_USER, TODO_ID);
     }
 
     @Test
     void shouldDeleteTodoWhenTheAdminTriesToDeleteTodoAssignedToOtherUser() {
         //given
-        Todo todo = Todo.builder().title(TITLE).user(USER_PLAIN).build();
-        when(todoRepository.findById(TODO_ID))
-                .thenReturn(Optional.of(todo));
         doReturn(newArrayList(AUTHORITY_ADMIN))
                 .when(authentication).getAuthorities();
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER_ADMIN);
+        when(todoRepository.findUserLoginById(TODO_ID))
+                .thenReturn(Optional.of(USERNAME_PLAIN_USER));
+        when(todoRepository.bulkDelete(accessibleBy(TODO_ID, null)))
+                .thenReturn(1);
 
         //when
         todoService.delete(TODO_ID, authentication);
 
         //then
-        verify(todoRepository).deleteById(TODO_ID);
+        verify(bulkChanges).deleted(USERNAME_PLAIN_USER, TODO_ID);
+    }
+
+    @Test
+    void shouldThrowEntityNotFoundExceptionWhenAdminTriesToDeleteMissingTodo() {
+        //given
+        doReturn(newArrayList(AUTHORITY_ADMIN))
+                .when(authentication).getAuthorities();
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER_ADMIN);
+        when(todoRepository.findUserLoginById(TODO_ID))
+                .thenReturn(Optional.empty());
+
+        //when + then
+        assertThrows(EntityNotFoundException.class,
+                () -> todoService.delete(TODO_ID, authentication));
+        verify(todoRepository, never()).bulkDelete(any());
+        verify(bulkChanges, never()).deleted(any(), any());
+    }
+
+    /**
+     * Matches a specification of the todo with the id that is owned by the user, or of any owner when no login is
+     * given.
+     */
+    private static Specification<Todo> accessibleBy(Long id, String login) {
+        List<Object> expectedValues = login == null ? List.of(id) : List.of(id, login);
+        return argThat(specification -> specification != null
+                && comparedValues(specification).equals(expectedValues));
+    }
+
+    /**
+     * Returns the values the specification compares todo attributes with, in the order it compares them.
+     */
+    private static List<Object> comparedValues(Specification<Todo> specification) {
+        List<Object> values = new ArrayList<>();
+        specification.toPredicate(criteria(Root.class, values), criteria(CriteriaQuery.class, values),
+                criteria(CriteriaBuilder.class, values));
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T criteria(Class<T> type, List<Object> comparedValues) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("equal")) {
+                comparedValues.add(args[1]);
+            }
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> type.getSimpleName();
+                default -> method.getReturnType().isInterface()
+                        ? criteria(method.getReturnType(), comparedValues)
+                        : null;
+            };
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.czyzewskialan.todo.todo.service;
+
+import com.czyzewskialan.todo.todo.controller.dto.TodoTitleDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoTitleIndexTest {
+    private static final String USERNAME = "user1";
+
+    private TodoTitleIndex titleIndex;
+    private AtomicInteger loads;
+    private Supplier<List<TodoTitleDto>> loader;
+
+    @BeforeEach
+    void setUp() {
+        titleIndex = new TodoTitleIndex(1000, Duration.ofMinutes(30));
+        loads = new AtomicInteger();
+        loader = () -> {
+            loads.incrementAndGet();
+            return List.of(new TodoTitleDto(1L, "Buy milk"), new TodoTitleDto(2L, "Buy bread"),
+                    new TodoTitleDto(3L, "Call mom"), new TodoTitleDto(4L, "buy eggs"));
+        };
+    }
+
+    @Test
+    void shouldFindTitlesByCaseInsensitivePrefixInOrder() {
+        //when
+        List<TodoTitleDto> titles = titleIndex.find(USERNAME, "BUY", 10, loader);
+
+        //then
+        assertThat(titles)
+                .extracting(TodoTitleDto::title)
+                .containsExactly("Buy bread", "buy eggs", "Buy milk");
+    }
+
+    @Test
+    void shouldLoadUsersTitlesOnlyOnce() {
+        //when
+        titleIndex.find(USERNAME, "b", 10, loader);
+        titleIndex.find(USERNAME, "c", 10, loader);
+
+        //then
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldLimitNumberOfTitles() {
+        //when + then
+        assertThat(titleIndex.find(USERNAME, "", 2, loader)).hasSize(2);
+    }
+
+    @Test
+    void shouldReflectWritesOnceUserIsLoaded() {
+        //given
+        titleIndex.find(USERNAME, "", 10, loader);
+
+        //when
+        titleIndex.put(USERNAME, 1L, "Call dad");
+        titleIndex.put(USERNAME, 5L, "Buy butter");
+        titleIndex.remove(USERNAME, 2L);
+
+        //then
+        assertThat(titleIndex.find(USERNAME, "buy", 10, loader))
+                .extracting(TodoTitleDto::id)
+                .containsExactly(5L, 4L);
+        assertThat(titleIndex.find(USERNAME, "call", 10, loader))
+                .extracting(TodoTitleDto::title)
+                .containsExactly("Call dad", "Call mom");
+    }
+
+    @Test
+    void shouldIgnoreWritesOfUsersThatAreNotLoaded() {
+        //when
+        titleIndex.put(USERNAME, 5L, "Buy butter");
+
+        //then
+        assertThat(titleIndex.find(USERNAME, "buy b", 10, loader))
+                .extracting(TodoTitleDto::title)
+                .containsExactly("Buy bread");
+    }
+
+    @Test
+    void shouldReloadUsersTitlesAfterInvalidation() {
+        //given
+        titleIndex.find(USERNAME, "", 10, loader);
+
+        //when
+        titleIndex.invalidate(USERNAME);
+        titleIndex.find(USERNAME, "", 10, loader);
+
+        //then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldReloadTitlesWhenWriteCommittedWhileTheyWereLoaded() {
+        //given
+        Supplier<List<TodoTitleDto>> racingLoader = () -> {
+            List<TodoTitleDto> titles = loader.get();
+            titleIndex.put(USERNAME, 5L, "Buy butter");
+            return titles;
+        };
+        titleIndex.find(USERNAME, "", 10, racingLoader);
+
+        //when
+        List<TodoTitleDto> titles = titleIndex.find(USERNAME, "buy b", 10,
+                () -> List.of(new TodoTitleDto(2L, "Buy bread"), new TodoTitleDto(5L, "Buy butter")));
+
+        //then
+        assertThat(titles)
+                .extracting(TodoTitleDto::title)
+                .containsExactly("Buy bread", "Buy butter");
+    }
+}
@@ -0,0 +1,106 @@
+package com.czyzewskialan.todo.user.controller;
+
+import com.czyzewskialan.todo.security.model.CurrentUser;
+import com.czyzewskialan.todo.todo.controller.dto.TodoDto;
+import com.czyzewskialan.todo.todo.controller.dto.TodoToAddDto;
+import com.czyzewskialan.todo.todo.domain.Todo;
+import com.czyzewskialan.todo.todo.persistance.TodoRepository;
+import com.czyzewskialan.todo.todo.service.TodoService;
+import com.czyzewskialan.todo.user.controller.dto.UserAnalyticsDto;
+import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.persistance.UserRepository;
+import com.czyzewskialan.todo.user.service.UserAnalyticsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@SpringBootTest
+class UserAnalyticsControllerIntegrationTest {
+    private static final String USERNAME = "analyticsUser";
+    private static final String PASSWORD_HASH = "passwordHash";
+    private static final String URL_ANALYTICS = "/analytics/users";
+
+    @Autowired
+    private UserAnalyticsService analyticsService;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = standaloneSetup(new UserAnalyticsController(analyticsService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void shouldFollowCommittedChangesOfUsersAndTodos() throws Exception {
+        //given
+        UserAnalyticsDto before = analyticsService.getAnalytics();
+
+        //when
+        userRepository.save(User.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role(User.Role.USER).build());
+        TodoDto todo = todoService.create(new TodoToAddDto("First", Todo.Priority.HIGH, null, false), authentication());
+        todoService.create(new TodoToAddDto("Second", null, null, false), authentication());
+        todoService.update(new TodoToAddDto(null, null, null, true), todoRepository.findAll().stream()
+                .filter(candidate -> candidate.getTitle().equals(todo.title()))
+                .findFirst().orElseThrow().getId(), authentication());
+
+        //then
+        UserAnalyticsDto after = analyticsService.getAnalytics();
+        assertThat(after.users()).isEqualTo(before.users() + 1);
+        assertThat(after.todos()).isEqualTo(before.todos() + 2);
+        assertThat(after.priorities().get("HIGH")).isEqualTo(before.priorities().get("HIGH") + 1);
+        assertThat(after.priorities().get("NONE")).isEqualTo(before.priorities().get("NONE") + 1);
+        assertThat(after.mostActiveUsers()).anySatisfy(user -> {
+            assertThat(user.login()).isEqualTo(USERNAME);
+            assertThat(user.changes()).isBetween(3L, 3 + after.mostActiveUsersMaxOverestimate());
+        });
+        mockMvc.perform(get(URL_ANALYTICS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.todos").value(after.todos()))
+                .andExpect(jsonPath("$.dailyActiveUsers[0].activeUsers").value(after.dailyActiveUsers().get(0).activeUsers()))
+                .andExpect(jsonPath("$.activeUsers").value(after.activeUsers()))
+                .andExpect(jsonPath("$.activeUsersStandardError").value(after.activeUsersStandardError()));
+        assertThat(after.dailyActiveUsers().get(0).day()).isEqualTo(LocalDate.now());
+        assertThat(after.dailyActiveUsers().get(0).activeUsers()).isPositive();
+        assertThat(after.completionRatio()).isBetween(0.0, 1.0);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void shouldThrowAccessDeniedExceptionWhenPlainUserWantsAnalytics() {
+        //when + then
+        assertThrows(AccessDeniedException.class, () -> analyticsService.getAnalytics());
+    }
+
+    private static Authentication authentication() {
+        CurrentUser currentUser = CurrentUser.builder().login(USERNAME).passwordHash(PASSWORD_HASH).role("ROLE_USER").build();
+        return new UsernamePasswordAuthenticationToken(currentUser, null, currentUser.getAuthorities());
+    }
+}
@@ -93,6 +93,26 @@ class UserControllerIntegrationTest {
         assertThatAccessDeniedExceptionIsThrown(throwingCallable);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void shouldAnswerNotModifiedWhenUserIsUnchanged() throws Exception {
+        //given
+        userRepository.save(user);
+        String eTag = mockMvc.perform(get(URL_USER_1))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        //when + then
+        mockMvc.perform(get(URL_USER_1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        userService.changeRole(USERNAME_1, User.Role.ADMIN);
+        mockMvc.perform(get(URL_USER_1).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)));
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void shouldReturnUsersWithoutPassword() throws Exception {
@@ -114,6 +134,21 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.content[0].passwordHash").doesNotExist());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void shouldReturnUsersSliceWithoutTotalsWhenCountIsNotRequested() throws Exception {
+        //given
+        userRepository.save(user);
+        userRepository.save(User.builder().login(USERNAME_2).passwordHash(PASSWORD_HASH).role(User.Role.ADMIN).build());
+
+        //when + then
+        mockMvc.perform(get(URL_BASE).param("size", "1").param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void shouldThrowAccessDeniedExceptionWhenPlainUserWantsToGetUser() {
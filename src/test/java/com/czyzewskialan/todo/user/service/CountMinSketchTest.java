@@ -0,0 +1,43 @@
+package com.czyzewskialan.todo.user.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void shouldNeverUnderestimateAndStayWithinStatedOverestimate() {
+        //given
+        CountMinSketch sketch = new CountMinSketch(1024, 5);
+
+        //when
+        IntStream.range(0, 20_000).forEach(i -> sketch.add("user" + i, 1));
+        sketch.add("heavy", 500);
+
+        //then
+        assertThat(sketch.total()).isEqualTo(20_500);
+        assertThat(sketch.estimate("heavy")).isBetween(500L, 500 + sketch.maxOverestimate());
+        assertThat(sketch.estimate("user1")).isBetween(1L, 1 + sketch.maxOverestimate());
+    }
+
+    @Test
+    void shouldAddCountsWhenMerged() {
+        //given
+        CountMinSketch first = new CountMinSketch(1024, 5);
+        CountMinSketch second = new CountMinSketch(1024, 5);
+        first.add("user1", 3);
+        second.add("user1", 4);
+        second.add("user2", 1);
+
+        //when
+        first.merge(second);
+
+        //then
+        assertThat(first.estimate("user1")).isEqualTo(7);
+        assertThat(first.estimate("user2")).isEqualTo(1);
+        assertThat(first.total()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.czyzewskialan.todo.user.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+    private static final int PRECISION = 14;
+
+    @Test
+    void shouldEstimateDistinctValuesWithinStatedError() {
+        //given
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        //when
+        IntStream.range(0, 100_000).forEach(i -> sketch.add("user" + (i % 50_000)));
+
+        //then
+        assertThat((double) sketch.estimate()).isCloseTo(50_000, within(50_000 * 3 * sketch.standardError()));
+    }
+
+    @Test
+    void shouldCountSmallNumbersOfValuesAlmostExactly() {
+        //given
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+
+        //when
+        IntStream.range(0, 100).forEach(i -> sketch.add("user" + (i % 10)));
+
+        //then
+        assertThat(sketch.estimate()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldEstimateUnionWhenMerged() {
+        //given
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        IntStream.range(0, 30_000).forEach(i -> first.add("user" + i));
+        IntStream.range(20_000, 50_000).forEach(i -> second.add("user" + i));
+
+        //when
+        first.merge(second);
+
+        //then
+        assertThat((double) first.estimate()).isCloseTo(50_000, within(50_000 * 3 * first.standardError()));
+    }
+}
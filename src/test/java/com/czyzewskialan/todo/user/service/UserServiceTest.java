@@ -6,13 +6,16 @@ import com.czyzewskialan.todo.user.controller.dto.UserDto;
 import com.czyzewskialan.todo.user.controller.dto.UserToAdd2UserConverter;
 import com.czyzewskialan.todo.user.controller.dto.UserToAddDto;
 import com.czyzewskialan.todo.user.domain.User;
+import com.czyzewskialan.todo.user.event.UserCredentialsChangedEvent;
 import com.czyzewskialan.todo.user.persistance.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -26,6 +29,7 @@ import javax.persistence.EntityExistsException;
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.czyzewskialan.todo.user.service.UserService.MESSAGE_ACCESS_DENIED_CHANGE_PASSWORD;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -59,13 +63,18 @@ class UserServiceTest {
     private Pageable pageable;
     @Captor
     private ArgumentCaptor<User> userArgumentCaptor;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private LoginFilter loginFilter;
 
     @BeforeEach
     void setUp() {
         user = User.builder().login(USERNAME_1).role(User.Role.USER).passwordHash(PASSWORD_HASH).build();
         admin = User.builder().login(USERNAME_2).role(User.Role.ADMIN).build();
         autoCloseable = openMocks(this);
-        userService = new UserService(userRepository, passwordEncoder, new User2UserDtoConverter(), new UserToAdd2UserConverter(passwordEncoder));
+        loginFilter = new LoginFilter(100, 0.01, new SimpleMeterRegistry());
+        userService = new UserService(userRepository, passwordEncoder, new User2UserDtoConverter(), new UserToAdd2UserConverter(passwordEncoder),
+                eventPublisher, loginFilter);
     }
 
     @AfterEach
@@ -74,10 +83,12 @@ class UserServiceTest {
     }
 
     @Test
-    void shouldInvokeRepositoryMethodWithCorrectUsernameAndReturnCorrectUserWhenUserExists() {
+    void shouldReturnReferenceToLoggedInUserWithoutLoadingItWhenUserExists() {
         //given
-        when(userRepository.findById(USERNAME_1))
-                .thenReturn(Optional.of(user));
+        when(userRepository.existsById(USERNAME_1))
+                .thenReturn(true);
+        when(userRepository.getReferenceById(USERNAME_1))
+                .thenReturn(user);
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER);
 
@@ -85,7 +96,8 @@ class UserServiceTest {
         User loggedInUser = userService.getLoggedInUser(authentication);
 
         //then
-        verify(userRepository).findById(stringArgumentCaptor.capture());
+        verify(userRepository).getReferenceById(stringArgumentCaptor.capture());
+        verify(userRepository, never()).findById(anyString());
         assertThat(stringArgumentCaptor.getValue()).isEqualTo(USERNAME_1);
         assertThat(loggedInUser).isEqualTo(user);
     }
@@ -95,26 +107,28 @@ class UserServiceTest {
         //given
         when(authentication.getPrincipal())
                 .thenReturn(CURRENT_USER);
-        when(userRepository.findById(USERNAME_1))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsById(USERNAME_1))
+                .thenReturn(false);
 
         //when + then
         assertThrows(UsernameNotFoundException.class,
                 () -> userService.getLoggedInUser(authentication),
                 USERNAME_1);
+        verify(userRepository, never()).getReferenceById(anyString());
     }
 
     @Test
     void shouldReturnAllUsers() {
         //given
-        when(userRepository.findAll(pageable))
-                .thenReturn(new PageImpl<>(newArrayList(user, admin)));
+        User2UserDtoConverter user2UserDtoConverter = new User2UserDtoConverter();
+        when(userRepository.findAllDtos(pageable))
+                .thenReturn(new PageImpl<>(newArrayList(user2UserDtoConverter.apply(user), user2UserDtoConverter.apply(admin))));
 
         //when
         Page<UserDto> usersDtoPage = userService.findAll(pageable);
 
         //then
-        verify(userRepository).findAll(pageable);
+        verify(userRepository).findAllDtos(pageable);
         List<UserDto> usersDto = usersDtoPage.getContent();
         assertThat(usersDto)
                 .hasSize(2)
@@ -148,6 +162,34 @@ class UserServiceTest {
                 USERNAME_1);
     }
 
+    @Test
+    void shouldNotQueryRepositoryWhileGettingUserWhenLoginFilterRulesItOut() {
+        //given
+        loginFilter.initialize(Stream.of(USERNAME_2));
+
+        //when + then
+        assertThrows(EntityNotFoundException.class,
+                () -> userService.findOne(USERNAME_1),
+                USERNAME_1);
+        verify(userRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void shouldNotCheckRepositoryWhileSavingNewUserWhenLoginFilterRulesItOut() {
+        //given
+        loginFilter.initialize(Stream.of(USERNAME_2));
+        UserToAddDto userToAdd = UserToAddDto.builder().login(USERNAME_1).build();
+        when(userRepository.save(any(User.class)))
+                .thenReturn(user);
+
+        //when
+        userService.create(userToAdd);
+
+        //then
+        verify(userRepository, never()).existsById(anyString());
+        verify(userRepository).save(any(User.class));
+    }
+
     @Test
     void shouldThrowEntityExistsExceptionWhenUserAlreadyExists() {
         //given
@@ -327,4 +369,31 @@ class UserServiceTest {
         assertThat(userArgumentCaptor.getValue().getPasswordHash())
                 .isEqualTo(newPassword);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPublishCredentialsChangedEventWhenPasswordIsChanged() {
+        //given
+        when(userRepository.findById(USERNAME_1))
+                .thenReturn(Optional.of(user));
+        when(authentication.getPrincipal())
+                .thenReturn(CURRENT_USER);
+
+        //when
+        userService.changePassword(USERNAME_1, "newPassword", authentication);
+
+        //then
+        verify(eventPublisher).publishEvent(new UserCredentialsChangedEvent(USERNAME_1));
+    }
+
+    @Test
+    void shouldNotPublishCredentialsChangedEventWhenRemovedUserDoesNotExist() {
+        //given
+        when(userRepository.existsById(USERNAME_1))
+                .thenReturn(false);
+
+        //when + then
+        assertThrows(EntityNotFoundException.class,
+                () -> userService.delete(USERNAME_1));
+        verifyNoInteractions(eventPublisher);
+    }
+}